@@ -0,0 +1,217 @@
+package org.wei.usercenterweb.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.redisson.api.RMap;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.CompositeCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.wei.usercenterweb.domain.response.UserInformation;
+import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.wei.usercenterweb.contains.UserConstants.AUTHORIZATION;
+import static org.wei.usercenterweb.contains.UserConstants.BEARER_PREFIX;
+
+/**
+ * 无状态登录令牌
+ * <p>
+ * 令牌内容为 版本号|过期时间|是否管理员|账户状态|用户id，使用 HMAC-SHA256 签名，校验时不访问 Redis 和数据库。
+ * 封禁、角色变更、注销时将用户的令牌版本号加一并广播到所有节点，低于当前版本号的令牌立即失效；
+ * 版本号保存在 Redis 哈希中，节点启动时整体加载到本地
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+@Slf4j
+@Component
+public class AuthTokenManager {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final String VERSION_KEY = "user:auth:version";
+
+    private static final String VERSION_TOPIC = "user:auth:revoke";
+
+    private static final String SEPARATOR = "|";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 登录方式：session（默认）或 token
+     */
+    @Value("${user.auth.mode:session}")
+    private String mode;
+
+    /**
+     * 签名密钥，多节点部署时必须一致
+     */
+    @Value("${user.auth.secret:}")
+    private String secret;
+
+    /**
+     * 令牌有效期（分钟）
+     */
+    @Value("${user.auth.token-ttl-minutes:15}")
+    private long tokenTtlMinutes;
+
+    /**
+     * 用户id -> 当前令牌版本号
+     */
+    private final ConcurrentMap<String, Long> versions = new ConcurrentHashMap<>();
+
+    private SecretKeySpec key;
+
+    private RTopic versionTopic;
+
+    private int listenerId;
+
+    @PostConstruct
+    public void init() {
+        if (!isTokenMode()) {
+            return;
+        }
+
+        byte[] secretBytes;
+        if (StringUtils.isBlank(secret)) {
+            log.warn("未配置 user.auth.secret，使用随机密钥，令牌只在当前节点有效");
+            secretBytes = new byte[32];
+            new SecureRandom().nextBytes(secretBytes);
+        } else {
+            secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(secretBytes, HMAC_ALGORITHM);
+
+        versionTopic = redissonClient.getTopic(VERSION_TOPIC, StringCodec.INSTANCE);
+        listenerId = versionTopic.addListener(String.class, (channel, message) -> {
+            int index = message.lastIndexOf(SEPARATOR);
+            updateVersion(message.substring(0, index), Long.parseLong(message.substring(index + 1)));
+        });
+        versions.putAll(versionMap().readAllMap());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (versionTopic != null) {
+            versionTopic.removeListener(listenerId);
+        }
+    }
+
+    public boolean isTokenMode() {
+        return "token".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 签发令牌
+     *
+     * @param user 登录用户
+     * @return 令牌
+     */
+    public String issue(UserInformation user) {
+        long expiresAt = System.currentTimeMillis() / 1000 + Duration.ofMinutes(tokenTtlMinutes).getSeconds();
+        String payload = versions.getOrDefault(user.getUserId(), 0L) + SEPARATOR + expiresAt
+                + SEPARATOR + user.getIsAdmin() + SEPARATOR + user.getUserStatus() + SEPARATOR + user.getUserId();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * 校验请求头中的令牌
+     *
+     * @param request 请求
+     * @return 令牌中的用户id、是否管理员、账户状态
+     */
+    public UserInformation authenticate(HttpServletRequest request) {
+        String header = request.getHeader(AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "用户未登录！");
+        }
+
+        String[] parts = header.substring(BEARER_PREFIX.length()).trim().split("\\.");
+        String[] claims;
+        try {
+            if (parts.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            byte[] payloadBytes = Base64.getUrlDecoder().decode(parts[0]);
+            if (!MessageDigest.isEqual(sign(payloadBytes), Base64.getUrlDecoder().decode(parts[1]))) {
+                throw new IllegalArgumentException();
+            }
+            claims = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", 5);
+        } catch (IllegalArgumentException e) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "登录凭证无效！");
+        }
+
+        long version = Long.parseLong(claims[0]);
+        long expiresAt = Long.parseLong(claims[1]);
+        String userId = claims[4];
+        if (expiresAt < System.currentTimeMillis() / 1000 || version < versions.getOrDefault(userId, 0L)) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "登录已过期，请重新登录！");
+        }
+
+        UserInformation user = new UserInformation();
+        user.setUserId(userId);
+        user.setIsAdmin(parseInteger(claims[2]));
+        user.setUserStatus(parseInteger(claims[3]));
+        if (Integer.valueOf(1).equals(user.getUserStatus())) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "账号已被封禁！");
+        }
+        return user;
+    }
+
+    /**
+     * 使用户已签发的令牌全部失效
+     *
+     * @param userId 用户id
+     */
+    public void revoke(String userId) {
+        if (!isTokenMode() || userId == null) {
+            return;
+        }
+        long version = versionMap().addAndGet(userId, 1L);
+        updateVersion(userId, version);
+        versionTopic.publish(userId + SEPARATOR + version);
+    }
+
+    private void updateVersion(String userId, long version) {
+        versions.merge(userId, version, Math::max);
+    }
+
+    private RMap<String, Long> versionMap() {
+        return redissonClient.getMap(VERSION_KEY, new CompositeCodec(StringCodec.INSTANCE, LongCodec.INSTANCE));
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("令牌签名失败", e);
+        }
+    }
+
+    private static Integer parseInteger(String value) {
+        return "null".equals(value) ? null : Integer.valueOf(value);
+    }
+}
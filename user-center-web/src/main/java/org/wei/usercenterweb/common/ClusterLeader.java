@@ -0,0 +1,129 @@
+package org.wei.usercenterweb.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 集群主节点选举
+ * <p>
+ * 各节点定时竞争 Redis 中的租约 key，持有租约的节点为主节点，负责执行只需一个节点完成的定时任务。
+ * 租约按固定间隔续期，续期间隔远小于租约时长；主节点宕机后租约过期，其他节点在下一次续期时接替。
+ * 每次新获得租约时递增一次防护令牌（fencing token），主节点写入共享数据时带上令牌，
+ * 写入方比较令牌大小，暂停后恢复的旧主节点无法覆盖新主节点写入的数据
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/29
+ */
+@Slf4j
+@Component
+public class ClusterLeader {
+    private static final String LEASE_KEY = "scheduler:leader";
+
+    private static final String FENCING_KEY = "scheduler:leader:fencing";
+
+    /**
+     * 租约空闲或已由当前节点持有时写入并续期，新获得租约时递增防护令牌；返回令牌，未获得租约时返回 -1
+     */
+    private static final String ACQUIRE_SCRIPT =
+            "local owner = redis.call('get', KEYS[1]) "
+                    + "if owner and owner ~= ARGV[1] then return -1 end "
+                    + "redis.call('set', KEYS[1], ARGV[1], 'px', ARGV[2]) "
+                    + "local token = redis.call('get', KEYS[2]) "
+                    + "if not owner or not token then token = redis.call('incr', KEYS[2]) end "
+                    + "return tonumber(token)";
+
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end "
+                    + "return 0";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 租约时长（毫秒）
+     */
+    @Value("${user.scheduler.leader.lease-millis:15000}")
+    private long leaseMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile long fencingToken = -1;
+
+    /**
+     * 本地认为租约有效的截止时间（System.nanoTime），预留一秒余量
+     */
+    private volatile long leaseDeadline;
+
+    @PostConstruct
+    public void init() {
+        renew();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (isLeader()) {
+            try {
+                redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RELEASE_SCRIPT,
+                        RScript.ReturnType.INTEGER, Collections.singletonList(LEASE_KEY), nodeId);
+            } catch (Exception e) {
+                log.warn("释放主节点租约失败", e);
+            }
+        }
+    }
+
+    /**
+     * 竞争或续期租约
+     */
+    @Scheduled(fixedDelayString = "${user.scheduler.leader.renew-millis:5000}")
+    public void renew() {
+        long startAt = System.nanoTime();
+        try {
+            Long token = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, ACQUIRE_SCRIPT,
+                    RScript.ReturnType.INTEGER, Arrays.asList(LEASE_KEY, FENCING_KEY),
+                    nodeId, String.valueOf(leaseMillis));
+            boolean wasLeader = isLeader();
+            if (token != null && token > 0) {
+                fencingToken = token;
+                leaseDeadline = startAt + (leaseMillis - 1000) * 1_000_000L;
+                if (!wasLeader) {
+                    log.info("当前节点成为主节点，nodeId: {}，fencingToken: {}", nodeId, token);
+                }
+            } else {
+                fencingToken = -1;
+                if (wasLeader) {
+                    log.info("当前节点不再是主节点，nodeId: {}", nodeId);
+                }
+            }
+        } catch (Exception e) {
+            // 无法确认租约时按本地截止时间判断，截止后自动失去主节点身份
+            log.warn("续期主节点租约失败", e);
+        }
+    }
+
+    /**
+     * 当前节点是否为主节点
+     */
+    public boolean isLeader() {
+        return fencingToken > 0 && System.nanoTime() - leaseDeadline < 0;
+    }
+
+    /**
+     * 当前租约的防护令牌，不是主节点时返回 -1
+     */
+    public long getFencingToken() {
+        return isLeader() ? fencingToken : -1;
+    }
+}
@@ -0,0 +1,127 @@
+package org.wei.usercenterweb.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 分页总数缓存
+ * <p>
+ * 按命名空间（user、team）和规范化后的筛选条件缓存 COUNT 结果，过期时间较短。
+ * 每个命名空间有一个版本号，数据写入后版本号加一，旧版本的缓存不再被读取；
+ * 版本变更通过 Redis 发布订阅同步到其他节点
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+@Slf4j
+@Component
+public class CountCache {
+    public static final String USER = "user";
+
+    public static final String TEAM = "team";
+
+    private static final String INVALIDATE_TOPIC = "user:count-cache:invalidate";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 最大缓存条目数
+     */
+    @Value("${user.count-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    /**
+     * 缓存过期时间（秒）
+     */
+    @Value("${user.count-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private Cache<String, Long> counts;
+
+    private RTopic invalidateTopic;
+
+    private int listenerId;
+
+    @PostConstruct
+    public void init() {
+        counts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+
+        invalidateTopic = redissonClient.getTopic(INVALIDATE_TOPIC, StringCodec.INSTANCE);
+        listenerId = invalidateTopic.addListener(String.class, (channel, namespace) -> generation(namespace).incrementAndGet());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        invalidateTopic.removeListener(listenerId);
+    }
+
+    /**
+     * 获取总数，未命中时执行查询并缓存
+     *
+     * @param namespace 命名空间
+     * @param filterKey 规范化后的筛选条件
+     * @param loader    查询总数
+     * @return 总数
+     */
+    public long count(String namespace, String filterKey, LongSupplier loader) {
+        String key = namespace + ":" + generation(namespace).get() + ":" + filterKey;
+        return counts.get(key, k -> loader.getAsLong());
+    }
+
+    /**
+     * 数据写入后使命名空间下的所有总数失效
+     * <p>
+     * 在事务中调用时推迟到提交之后执行，避免并发查询在提交前读到旧数据并以新版本号缓存；没有事务时立即执行
+     *
+     * @param namespace 命名空间
+     */
+    public void invalidate(String namespace) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(namespace);
+                }
+            });
+            return;
+        }
+        invalidateNow(namespace);
+    }
+
+    private void invalidateNow(String namespace) {
+        generation(namespace).incrementAndGet();
+        try {
+            invalidateTopic.publish(namespace);
+        } catch (Exception e) {
+            log.warn("广播总数缓存失效失败，namespace: {}", namespace, e);
+        }
+    }
+
+    private AtomicLong generation(String namespace) {
+        return generations.computeIfAbsent(namespace, k -> new AtomicLong());
+    }
+}
@@ -0,0 +1,315 @@
+package org.wei.usercenterweb.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存：本地 Caffeine（L1）+ Redis（L2）
+ * <p>
+ * 读取时先查本地，未命中再通过一次 {@code bucket.get()} 读取 Redis 并回填本地；
+ * 写入时本地过期时间取 Redis 过期时间与本地上限中较小的一个，从 Redis 回填时直接使用本地上限。
+ * 失效按命名空间进行：每个命名空间在 Redis 中有一个代数计数器，缓存 key 带上当前代数，
+ * 失效时只需一次 INCR 并广播新代数，旧代数的数据不再被读取，随各自的过期时间淘汰，不需要按模式扫描删除。
+ * 各节点本地缓存的代数最多保留本地过期时间上限，错过广播时也会及时从 Redis 读取最新代数。
+ * <p>
+ * {@link #getOrLoad} 在此基础上提供本节点内的请求合并（同一个 key 同时只计算一次，其余请求等待同一结果）
+ * 以及过期后先返回旧值、后台异步刷新的能力
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+@Slf4j
+@Component
+public class NearCache {
+    private static final String INVALIDATE_TOPIC = "user:near-cache:invalidate";
+
+    private static final String GENERATION_KEY_PREFIX = "user:near-cache:generation:";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 本地缓存最大条目数
+     */
+    @Value("${user.near-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    /**
+     * 本地缓存过期时间上限（秒）
+     */
+    @Value("${user.near-cache.local-ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    /**
+     * 后台刷新线程数
+     */
+    @Value("${user.near-cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    /**
+     * 正在计算中的 key
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    private Cache<String, Entry> localCache;
+
+    /**
+     * 命名空间 -> 当前代数
+     */
+    private Cache<String, Long> generations;
+
+    private RTopic invalidateTopic;
+
+    private int listenerId;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new EntryExpiry())
+                .build();
+        generations = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+
+        // 消息格式为 命名空间@代数
+        invalidateTopic = redissonClient.getTopic(INVALIDATE_TOPIC, StringCodec.INSTANCE);
+        listenerId = invalidateTopic.addListener(String.class, (channel, message) -> {
+            int separator = message.lastIndexOf('@');
+            if (separator > 0) {
+                advanceGeneration(message.substring(0, separator), Long.parseLong(message.substring(separator + 1)));
+            }
+        });
+
+        // 刷新任务积压时直接丢弃，下一次读取旧值时会再次触发
+        AtomicInteger threadIndex = new AtomicInteger();
+        refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "near-cache-refresh-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        invalidateTopic.removeListener(listenerId);
+        refreshExecutor.shutdown();
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key 缓存 key
+     * @return 缓存值，两级都未命中时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        Entry entry = localCache.getIfPresent(key);
+        if (entry != null) {
+            return (T) entry.value;
+        }
+
+        // 不再额外查询剩余过期时间，本地按上限时间保留，避免多一次网络往返
+        RBucket<T> bucket = redissonClient.getBucket(key);
+        T value = bucket.get();
+        if (value != null) {
+            localCache.put(key, new Entry(value, localTtlNanos(Long.MAX_VALUE)));
+        }
+        return value;
+    }
+
+    /**
+     * 写入两级缓存
+     *
+     * @param key   缓存 key
+     * @param value 缓存值
+     * @param ttl   Redis 过期时间
+     */
+    public void put(String key, Object value, Duration ttl) {
+        redissonClient.getBucket(key).set(value, ttl);
+        localCache.put(key, new Entry(value, localTtlNanos(ttl.toMillis())));
+    }
+
+    /**
+     * 读取缓存，未命中时合并并发请求只计算一次；数据超过新鲜期后先返回旧值，再在后台刷新
+     *
+     * @param key        缓存 key
+     * @param freshTtl   新鲜期，超过后触发刷新
+     * @param staleTtl   新鲜期之后仍可返回旧值的时长
+     * @param loader     计算缓存值
+     * @return 缓存值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Duration freshTtl, Duration staleTtl, Supplier<T> loader) {
+        Object value = get(key);
+        if (value instanceof VersionedValue) {
+            VersionedValue cached = (VersionedValue) value;
+            if (System.currentTimeMillis() >= cached.getRefreshAt() && !inFlight.containsKey(key)) {
+                refreshExecutor.execute(() -> {
+                    try {
+                        load(key, freshTtl, staleTtl, loader);
+                    } catch (Exception e) {
+                        log.warn("后台刷新缓存失败，key: {}", key, e);
+                    }
+                });
+            }
+            return (T) cached.getValue();
+        }
+        return load(key, freshTtl, staleTtl, loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(String key, Duration freshTtl, Duration staleTtl, Supplier<T> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            T value = loader.get();
+            VersionedValue versioned = new VersionedValue(value, System.currentTimeMillis() + freshTtl.toMillis());
+            put(key, versioned, freshTtl.plus(staleTtl));
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 为缓存 key 加上命名空间的当前代数
+     *
+     * @param namespace 命名空间
+     * @param key       缓存 key
+     * @return 带代数的缓存 key
+     */
+    public String versionedKey(String namespace, String key) {
+        Long generation = generations.get(namespace,
+                ns -> redissonClient.getAtomicLong(GENERATION_KEY_PREFIX + ns).get());
+        return namespace + ":v" + generation + ":" + key;
+    }
+
+    /**
+     * 使命名空间下的缓存在所有节点失效，处于事务中时在提交后执行
+     *
+     * @param namespace 命名空间
+     */
+    public void invalidateNamespace(String namespace) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNamespaceNow(namespace);
+                }
+            });
+            return;
+        }
+        invalidateNamespaceNow(namespace);
+    }
+
+    private void invalidateNamespaceNow(String namespace) {
+        try {
+            long generation = redissonClient.getAtomicLong(GENERATION_KEY_PREFIX + namespace).incrementAndGet();
+            advanceGeneration(namespace, generation);
+            invalidateTopic.publish(namespace + "@" + generation);
+        } catch (Exception e) {
+            log.warn("清除分页缓存失败，namespace: {}", namespace, e);
+        }
+    }
+
+    private void advanceGeneration(String namespace, long generation) {
+        generations.asMap().merge(namespace, generation, Math::max);
+        log.debug("缓存命名空间 {} 更新到第{}代", namespace, generation);
+    }
+
+    private long localTtlNanos(long ttlMillis) {
+        return Duration.ofMillis(Math.min(ttlMillis, Duration.ofSeconds(localTtlSeconds).toMillis())).toNanos();
+    }
+
+    /**
+     * 带刷新时间的缓存值，保存在 Redis 中
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VersionedValue {
+        private Object value;
+
+        /**
+         * 超过该时间（毫秒时间戳）后需要刷新
+         */
+        private long refreshAt;
+    }
+
+    /**
+     * 本地缓存条目，记录各自的过期时间
+     */
+    private static class Entry {
+        private final Object value;
+
+        private final long ttlNanos;
+
+        Entry(Object value, long ttlNanos) {
+            this.value = value;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    private static class EntryExpiry implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return entry.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return entry.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.wei.usercenterweb.common;
+
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 游标分页位置，按 (create_time, id) 倒序定位上一页的最后一条数据
+ * <p>
+ * 对外以 Base64 编码的不透明字符串传递，客户端只需原样回传
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+@Getter
+public class PageCursor {
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 创建时间 yyyy-MM-dd HH:mm:ss
+     */
+    private final String createTime;
+
+    private final String id;
+
+    private PageCursor(String createTime, String id) {
+        this.createTime = createTime;
+        this.id = id;
+    }
+
+    /**
+     * 生成游标
+     *
+     * @param createTime 最后一条数据的创建时间
+     * @param id         最后一条数据的id
+     * @return 游标字符串
+     */
+    public static String encode(String createTime, String id) {
+        if (createTime == null || id == null) {
+            return null;
+        }
+        String time = createTime.length() > 19 ? createTime.substring(0, 19) : createTime;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((time + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标字符串，空字符串表示第一页
+     * @return 游标位置，第一页返回 null
+     */
+    public static PageCursor decode(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = value.indexOf(SEPARATOR);
+            if (index > 0 && index < value.length() - 1) {
+                return new PageCursor(value.substring(0, index), value.substring(index + 1));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // 统一按游标无效处理
+        }
+        throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST, "分页游标无效！");
+    }
+}
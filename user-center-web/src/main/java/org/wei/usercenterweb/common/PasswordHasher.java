@@ -0,0 +1,285 @@
+package org.wei.usercenterweb.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
+import org.wei.usercenterweb.utile.BCryptEncryption;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 密码哈希执行器
+ * <p>
+ * BCrypt 计算在固定大小的专用线程池中执行，同时进行的哈希数量不超过线程数，不再占满 Tomcat 请求线程的 CPU；
+ * 排队数量达到上限时直接拒绝并返回 HTTP 429，等待超过 timeout-millis 时取消计算并返回 HTTP 503，
+ * 请求线程最多等待 timeout-millis，由客户端稍后重试。
+ * 记录排队和计算耗时，定时输出到日志。
+ * <p>
+ * 验证成功的结果在本地短暂缓存，key 为（主体、已存储的哈希、明文）的 HMAC，HMAC 密钥每次启动随机生成，
+ * 缓存中不保存明文；修改密码后已存储的哈希随之变化，旧的缓存自然不再命中
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/29
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+    /**
+     * 哈希线程数，0 表示使用 CPU 核数
+     */
+    @Value("${user.password.hash-threads:0}")
+    private int hashThreads;
+
+    /**
+     * 等待哈希的最大排队数量
+     */
+    @Value("${user.password.queue-capacity:64}")
+    private int queueCapacity;
+
+    /**
+     * BCrypt 计算强度，取值 4 ~ 31
+     */
+    @Value("${user.password.bcrypt-cost:10}")
+    private int bcryptCost;
+
+    /**
+     * 单次哈希最长等待时间（毫秒）
+     */
+    @Value("${user.password.timeout-millis:5000}")
+    private long timeoutMillis;
+
+    /**
+     * 验证成功结果的缓存时间（秒），0 表示不缓存
+     */
+    @Value("${user.password.verified-cache-seconds:300}")
+    private long verifiedCacheSeconds;
+
+    /**
+     * 验证成功结果的最大缓存条目数
+     */
+    @Value("${user.password.verified-cache-size:10000}")
+    private long verifiedCacheSize;
+
+    /**
+     * 登录时是否将计算强度与配置不一致的密码重新加密
+     */
+    @Value("${user.password.rehash-on-login:false}")
+    private boolean rehashOnLogin;
+
+    private final LatencyStats waitStats = new LatencyStats();
+
+    private final LatencyStats hashStats = new LatencyStats();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private ThreadPoolExecutor executor;
+
+    private Cache<String, Boolean> verified;
+
+    private SecretKeySpec cacheKey;
+
+    @PostConstruct
+    public void init() {
+        if (timeoutMillis <= 0) {
+            throw new IllegalStateException("user.password.timeout-millis 必须大于 0");
+        }
+        if (bcryptCost < 4 || bcryptCost > 31) {
+            throw new IllegalStateException("user.password.bcrypt-cost 必须在 4 ~ 31 之间，当前为 " + bcryptCost);
+        }
+        verified = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(verifiedCacheSeconds))
+                .build();
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        cacheKey = new SecretKeySpec(keyBytes, "HmacSHA256");
+
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 对密码进行加密
+     *
+     * @param plainPassword 明文密码
+     * @return 加密后的密码
+     */
+    public String hash(String plainPassword) {
+        return execute(() -> BCryptEncryption.encryptPassword(plainPassword, bcryptCost));
+    }
+
+    /**
+     * 验证密码是否匹配
+     *
+     * @param plainPassword  明文密码
+     * @param hashedPassword 加密后的密码
+     * @return 如果匹配返回 true，否则返回 false
+     */
+    public boolean verify(String plainPassword, String hashedPassword) {
+        return execute(() -> BCryptEncryption.verifyPassword(plainPassword, hashedPassword));
+    }
+
+    /**
+     * 验证密码是否匹配，同一主体最近验证成功过的相同密码直接返回，不再计算 BCrypt
+     *
+     * @param subject        主体，如 user:{id}、team:{id}
+     * @param plainPassword  明文密码
+     * @param hashedPassword 加密后的密码
+     * @return 如果匹配返回 true，否则返回 false
+     */
+    public boolean verify(String subject, String plainPassword, String hashedPassword) {
+        if (verifiedCacheSeconds <= 0 || plainPassword == null || hashedPassword == null) {
+            return verify(plainPassword, hashedPassword);
+        }
+        String key = cacheKey(subject, plainPassword, hashedPassword);
+        if (verified.getIfPresent(key) != null) {
+            return true;
+        }
+        boolean matched = verify(plainPassword, hashedPassword);
+        if (matched) {
+            verified.put(key, Boolean.TRUE);
+        }
+        return matched;
+    }
+
+    /**
+     * 已存储的哈希是否需要按当前配置的计算强度重新加密
+     *
+     * @param hashedPassword 加密后的密码
+     * @return 开启登录重新加密且计算强度与配置不一致时返回 true
+     */
+    public boolean needsRehash(String hashedPassword) {
+        if (!rehashOnLogin || hashedPassword == null || hashedPassword.length() < 7) {
+            return false;
+        }
+        // 格式为 $2a$10$...，第 4、5 位为计算强度
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6)) != bcryptCost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private String cacheKey(String subject, String plainPassword, String hashedPassword) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(cacheKey);
+            mac.update(subject.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(hashedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(plainPassword.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("密码缓存 key 计算失败", e);
+        }
+    }
+
+    private <T> T execute(Callable<T> task) {
+        long submitAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startAt = System.nanoTime();
+                waitStats.record(startAt - submitAt);
+                try {
+                    return task.call();
+                } finally {
+                    hashStats.record(System.nanoTime() - startAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new CustomRuntimeExceptions(StatusCodeEnum.TOO_MANY_REQUESTS, "请求过于频繁，请稍后重试！");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new CustomRuntimeExceptions(StatusCodeEnum.SERVICE_UNAVAILABLE, "系统繁忙，请稍后重试！");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CustomRuntimeExceptions(StatusCodeEnum.SERVICE_UNAVAILABLE, "系统繁忙，请稍后重试！");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new CustomRuntimeExceptions(e);
+        }
+    }
+
+    /**
+     * 定时输出密码哈希耗时
+     */
+    @Scheduled(fixedDelayString = "${user.password.metrics-log-delay:60000}")
+    public void logMetrics() {
+        long rejectedCount = rejected.sumThenReset();
+        String hash = hashStats.snapshotAndReset();
+        String wait = waitStats.snapshotAndReset();
+        if (hash != null || rejectedCount > 0) {
+            log.info("密码哈希统计 计算: {}，排队: {}，拒绝: {}，当前排队: {}",
+                    hash, wait, rejectedCount, executor.getQueue().size());
+        }
+    }
+
+    /**
+     * 耗时统计：次数、平均值、最大值
+     */
+    private static class LatencyStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        String snapshotAndReset() {
+            long n = count.sumThenReset();
+            long total = totalNanos.sumThenReset();
+            long max = maxNanos.getAndSet(0);
+            if (n == 0) {
+                return null;
+            }
+            return String.format("次数 %d，平均 %.1fms，最大 %.1fms", n, total / 1e6 / n, max / 1e6);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.wei.usercenterweb.common;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.wei.usercenterweb.domain.response.UserInformation;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * 每个用户预先计算好的推荐列表
+ * <p>
+ * 推荐列表以用户id为成员、名次为分数保存在 Redis 有序集合中，分页时直接按名次区间读取，
+ * 无需对全部用户重新打分。key 中包含标签指纹，用户修改标签后旧列表自然失效
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+@Slf4j
+@Component
+public class ReferralListCache {
+    private static final String LIST_KEY = "user:referral:rank:%s:%s";
+
+    private static final String ACTIVE_KEY = "user:referral:active";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private UserCache userCache;
+
+    /**
+     * 每个用户预先计算的推荐数量
+     */
+    @Getter
+    @Value("${user.referral.list-size:500}")
+    private int listSize;
+
+    /**
+     * 推荐列表过期时间（分钟）
+     */
+    @Value("${user.referral.list-ttl-minutes:60}")
+    private long listTtlMinutes;
+
+    /**
+     * 活跃用户的统计窗口（小时）
+     */
+    @Value("${user.referral.active-window-hours:24}")
+    private long activeWindowHours;
+
+    /**
+     * 单次后台构建最多处理的活跃用户数量
+     */
+    @Value("${user.referral.max-active-users:10000}")
+    private int maxActiveUsers;
+
+    /**
+     * 读取推荐列表中的一页
+     *
+     * @param userId 用户id
+     * @param tags   用户标签
+     * @param offset 起始名次
+     * @param limit  数量
+     * @return 用户信息，列表不存在时返回 null
+     */
+    public List<UserInformation> getPage(String userId, Set<String> tags, int offset, int limit) {
+        RScoredSortedSet<String> rankList = rankList(userId, tags);
+        Collection<String> ids = rankList.valueRange(offset, offset + limit - 1);
+        if (ids.isEmpty() && !rankList.isExists()) {
+            return null;
+        }
+        return toUserInformation(ids);
+    }
+
+    /**
+     * 计算并保存用户的推荐列表，返回其中的一页
+     *
+     * @param userId 用户id
+     * @param tags   用户标签
+     * @param offset 起始名次
+     * @param limit  数量
+     * @return 用户信息
+     */
+    public List<UserInformation> buildAndGetPage(String userId, Set<String> tags, int offset, int limit) {
+        List<String> rankedIds = build(userId, tags);
+        if (offset >= rankedIds.size()) {
+            return new ArrayList<>();
+        }
+        return toUserInformation(rankedIds.subList(offset, Math.min(offset + limit, rankedIds.size())));
+    }
+
+    /**
+     * 记录请求推荐数据的用户，供后台构建任务使用
+     *
+     * @param userId 用户id
+     */
+    public void markActive(String userId) {
+        activeUsers().addAsync(System.currentTimeMillis(), userId);
+    }
+
+    /**
+     * 为最近活跃的用户重新构建推荐列表
+     *
+     * @return 构建的列表数量
+     */
+    public int rebuildActiveLists() {
+        RScoredSortedSet<String> activeUsers = activeUsers();
+        long windowStart = System.currentTimeMillis() - Duration.ofHours(activeWindowHours).toMillis();
+        activeUsers.removeRangeByScore(0, true, windowStart, false);
+
+        int built = 0;
+        for (String userId : activeUsers.valueRangeReversed(0, maxActiveUsers - 1)) {
+            UserInformation user = userCache.getUserById(userId);
+            Set<String> tags = user == null ? null : UserTagIndex.parseTags(user.getTags());
+            if (tags == null || tags.isEmpty()) {
+                continue;
+            }
+            try {
+                build(userId, tags);
+                built++;
+            } catch (Exception e) {
+                log.warn("构建用户[{}]推荐列表失败", userId, e);
+            }
+        }
+        return built;
+    }
+
+    private List<String> build(String userId, Set<String> tags) {
+        List<String> rankedIds = userCache.getSimilarUserIds(tags, userId, listSize);
+
+        // 以名次作为分数，保证读取顺序与计算结果完全一致
+        Map<String, Double> members = new LinkedHashMap<>(rankedIds.size() * 2);
+        for (int rank = 0; rank < rankedIds.size(); rank++) {
+            members.put(rankedIds.get(rank), (double) rank);
+        }
+
+        String key = listKey(userId, tags);
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults()
+                .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+        RScoredSortedSetAsync<String> rankList = batch.getScoredSortedSet(key, StringCodec.INSTANCE);
+        rankList.deleteAsync();
+        if (!members.isEmpty()) {
+            rankList.addAllAsync(members);
+            rankList.expireAsync(Duration.ofMinutes(listTtlMinutes));
+        }
+        batch.execute();
+        return rankedIds;
+    }
+
+    private List<UserInformation> toUserInformation(Collection<String> ids) {
+        // 列表生成后被封禁或删除的用户直接跳过
+        return ids.stream()
+                .map(userCache::getUserById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private RScoredSortedSet<String> rankList(String userId, Set<String> tags) {
+        return redissonClient.getScoredSortedSet(listKey(userId, tags), StringCodec.INSTANCE);
+    }
+
+    private RScoredSortedSet<String> activeUsers() {
+        return redissonClient.getScoredSortedSet(ACTIVE_KEY, StringCodec.INSTANCE);
+    }
+
+    private static String listKey(String userId, Set<String> tags) {
+        String fingerprint = Integer.toHexString(String.join(",", new TreeSet<>(tags)).hashCode());
+        return String.format(LIST_KEY, userId, fingerprint);
+    }
+}
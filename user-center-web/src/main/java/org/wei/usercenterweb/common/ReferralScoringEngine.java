@@ -0,0 +1,111 @@
+package org.wei.usercenterweb.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 推荐并行打分引擎
+ * <p>
+ * 将用户目录按序号切分为若干区间，在专用 ForkJoinPool 中分别计算各区间的前 k 个，再逐级合并。
+ * 用户数较少或线程池积压过多时退回到单线程的倒排索引打分
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+@Slf4j
+@Component
+public class ReferralScoringEngine {
+    @Resource
+    private ForkJoinPool referralScoringPool;
+
+    /**
+     * 每个子任务处理的用户数量
+     */
+    @Value("${user.referral.scoring.chunk-size:4096}")
+    private int chunkSize;
+
+    /**
+     * 用户数达到该值时才启用并行打分
+     */
+    @Value("${user.referral.scoring.parallel-threshold:20000}")
+    private int parallelThreshold;
+
+    /**
+     * 线程池中排队的外部提交数量超过该值时退回到调用线程打分
+     */
+    @Value("${user.referral.scoring.max-queued-submissions:64}")
+    private int maxQueuedSubmissions;
+
+    /**
+     * 按 Jaccard 相似度取前 k 个用户
+     *
+     * @param index          标签索引
+     * @param tags           当前用户标签
+     * @param excludeOrdinal 需要排除的用户序号，不排除时传 -1
+     * @param k              需要的数量
+     * @return 按相似度降序排列的用户序号
+     */
+    public int[] topK(UserTagIndex index, Collection<String> tags, int excludeOrdinal, int k) {
+        // 每个区间的堆容量为 k，不能超过用户数量
+        k = Math.min(k, index.size());
+        if (k <= 0 || index.size() < parallelThreshold
+                || referralScoringPool.getQueuedSubmissionCount() > maxQueuedSubmissions) {
+            return index.topK(tags, excludeOrdinal, k);
+        }
+
+        UserTagIndex.Query query = index.query(tags);
+        try {
+            TopKHeap heap = referralScoringPool.invoke(
+                    new ScoreTask(index, query, 0, index.size(), excludeOrdinal, k, Math.max(chunkSize, 1)));
+            return index.complete(heap, query, excludeOrdinal, k);
+        } catch (Exception e) {
+            log.warn("并行打分失败，改为单线程打分", e);
+            return index.topK(tags, excludeOrdinal, k);
+        }
+    }
+
+    /**
+     * 区间打分任务，区间不超过 chunkSize 时直接打分，否则一分为二
+     */
+    private static class ScoreTask extends RecursiveTask<TopKHeap> {
+        private final UserTagIndex index;
+        private final UserTagIndex.Query query;
+        private final int from;
+        private final int to;
+        private final int excludeOrdinal;
+        private final int k;
+        private final int chunkSize;
+
+        ScoreTask(UserTagIndex index, UserTagIndex.Query query, int from, int to,
+                  int excludeOrdinal, int k, int chunkSize) {
+            this.index = index;
+            this.query = query;
+            this.from = from;
+            this.to = to;
+            this.excludeOrdinal = excludeOrdinal;
+            this.k = k;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected TopKHeap compute() {
+            if (to - from <= chunkSize) {
+                return index.scoreRange(query, from, to, excludeOrdinal, k);
+            }
+            int mid = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(index, query, from, mid, excludeOrdinal, k, chunkSize);
+            ScoreTask right = new ScoreTask(index, query, mid, to, excludeOrdinal, k, chunkSize);
+            left.fork();
+            TopKHeap merged = right.compute();
+            merged.merge(left.join());
+            return merged;
+        }
+    }
+}
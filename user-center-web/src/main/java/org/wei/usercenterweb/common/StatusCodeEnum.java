@@ -20,6 +20,7 @@ public enum StatusCodeEnum {
     FORBIDDEN(403, "禁止访问"),
     NOT_FOUND(404, "资源未找到"),
     METHOD_NOT_ALLOWED(405, "请求方法不允许"),
+    TOO_MANY_REQUESTS(429, "请求过于频繁"),
     // 服务器错误状态码
     INTERNAL_SERVER_ERROR(500, "服务器内部错误"),
     SERVICE_UNAVAILABLE(503, "服务不可用");
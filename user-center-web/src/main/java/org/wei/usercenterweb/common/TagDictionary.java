@@ -0,0 +1,112 @@
+package org.wei.usercenterweb.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 标签字典，将标签字符串驻留为从 0 开始的连续整数 id
+ * <p>
+ * 每个用户的标签据此编码为位向量：id 为 i 的标签对应第 i / 64 个 long 的第 i % 64 位，
+ * 词表不超过 64 个时每个用户只需要一个 long
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/25
+ */
+public class TagDictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final List<String> tags = new ArrayList<>();
+
+    /**
+     * 获取标签 id，不存在时分配新的 id
+     *
+     * @param tag 标签
+     * @return 标签 id
+     */
+    public int intern(String tag) {
+        Integer id = ids.get(tag);
+        if (id != null) {
+            return id;
+        }
+        int newId = tags.size();
+        ids.put(tag, newId);
+        tags.add(tag);
+        return newId;
+    }
+
+    /**
+     * 查询标签 id
+     *
+     * @param tag 标签
+     * @return 标签 id，不存在时返回 -1
+     */
+    public int idOf(String tag) {
+        Integer id = ids.get(tag);
+        return id == null ? -1 : id;
+    }
+
+    public String tagOf(int id) {
+        return tags.get(id);
+    }
+
+    public int size() {
+        return tags.size();
+    }
+
+    public List<String> getTags() {
+        return Collections.unmodifiableList(tags);
+    }
+
+    /**
+     * 当前词表所需的位向量长度（long 的个数）
+     */
+    public int words() {
+        return Math.max(1, (tags.size() + 63) >>> 6);
+    }
+
+    /**
+     * 将标签集合编码为位向量，词表中不存在的标签会被忽略
+     *
+     * @param tagSet 标签集合
+     * @param words  位向量长度
+     * @return 位向量
+     */
+    public long[] encode(Collection<String> tagSet, int words) {
+        long[] vector = new long[words];
+        for (String tag : tagSet) {
+            int id = idOf(tag);
+            if (id >= 0 && (id >>> 6) < words) {
+                vector[id >>> 6] |= 1L << id;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * 计算两个位向量的 Jaccard 相似度：|A ∩ B| / |A ∪ B|
+     *
+     * @param a           位向量数组
+     * @param aOffset     a 的起始下标
+     * @param b           位向量数组
+     * @param bOffset     b 的起始下标
+     * @param words       位向量长度
+     * @param extraUnion  额外计入并集的数量（如不在词表中的查询标签）
+     * @return 相似度，并集为空时返回 0
+     */
+    public static double jaccard(long[] a, int aOffset, long[] b, int bOffset, int words, int extraUnion) {
+        int intersection = 0;
+        int union = extraUnion;
+        for (int i = 0; i < words; i++) {
+            long x = a[aOffset + i];
+            long y = b[bOffset + i];
+            intersection += Long.bitCount(x & y);
+            union += Long.bitCount(x | y);
+        }
+        return union == 0 ? 0.0 : intersection / (double) union;
+    }
+}
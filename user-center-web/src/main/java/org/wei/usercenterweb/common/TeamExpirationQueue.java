@@ -0,0 +1,136 @@
+package org.wei.usercenterweb.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 队伍过期队列
+ * <p>
+ * 以 Redis 有序集合保存每个队伍的过期时间（秒级时间戳），队伍创建或修改过期时间时写入，解散时移除。
+ * 到期的队伍通过 Lua 脚本原子地取出并移除，多个节点同时轮询时每个队伍只会被一个节点取到
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/29
+ */
+@Slf4j
+@Component
+public class TeamExpirationQueue {
+    private static final String QUEUE_KEY = "team:expire:queue";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 取出不超过 ARGV[2] 个过期时间不晚于 ARGV[1] 的队伍，并从集合中移除
+     */
+    private static final String POLL_DUE_SCRIPT =
+            "local ids = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'limit', 0, ARGV[2]) "
+                    + "if #ids > 0 then redis.call('zrem', KEYS[1], unpack(ids)) end "
+                    + "return ids";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 登记队伍过期时间，已登记时覆盖
+     *
+     * @param teamId     队伍id
+     * @param expireTime 过期时间 yyyy-MM-dd HH:mm:ss
+     */
+    public void schedule(String teamId, String expireTime) {
+        scheduleAll(Collections.singletonMap(teamId, expireTime));
+    }
+
+    /**
+     * 批量登记队伍过期时间，一次写入 Redis
+     *
+     * @param expireTimes 队伍id -> 过期时间 yyyy-MM-dd HH:mm:ss
+     */
+    public void scheduleAll(Map<String, String> expireTimes) {
+        scheduleAll(expireTimes, 0);
+    }
+
+    /**
+     * 批量登记队伍过期时间，登记的时间不早于当前时间加上延迟，用于重新登记未处理的队伍，
+     * 避免已过去的过期时间被立即再次取出
+     *
+     * @param expireTimes  队伍id -> 过期时间 yyyy-MM-dd HH:mm:ss
+     * @param delaySeconds 最少延迟秒数
+     */
+    public void scheduleAll(Map<String, String> expireTimes, long delaySeconds) {
+        long notBefore = System.currentTimeMillis() / 1000 + delaySeconds;
+        Map<String, Double> deadlines = new HashMap<>(expireTimes.size() * 2);
+        expireTimes.forEach((teamId, expireTime) -> {
+            if (teamId == null || StringUtils.isBlank(expireTime)) {
+                return;
+            }
+            try {
+                // 数据库读出的时间可能带有毫秒部分
+                String time = expireTime.length() > 19 ? expireTime.substring(0, 19) : expireTime;
+                long deadline = LocalDateTime.parse(time, TIME_FORMATTER)
+                        .atZone(ZoneId.systemDefault()).toEpochSecond();
+                deadlines.put(teamId, (double) (delaySeconds > 0 ? Math.max(deadline, notBefore) : deadline));
+            } catch (DateTimeParseException e) {
+                log.warn("队伍过期时间格式错误，teamId: {}，expireTime: {}", teamId, expireTime);
+            }
+        });
+        if (deadlines.isEmpty()) {
+            return;
+        }
+        try {
+            queue().addAll(deadlines);
+        } catch (Exception e) {
+            // 登记失败时由定时对账补上
+            log.warn("登记队伍过期时间失败，teamIds: {}", deadlines.keySet(), e);
+        }
+    }
+
+    /**
+     * 移除队伍的过期登记
+     *
+     * @param teamId 队伍id
+     */
+    public void cancel(String teamId) {
+        try {
+            queue().remove(teamId);
+        } catch (Exception e) {
+            log.warn("移除队伍过期登记失败，teamId: {}", teamId, e);
+        }
+    }
+
+    /**
+     * 取出已到期的队伍
+     *
+     * @param limit 最多取出数量
+     * @return 队伍id
+     */
+    public List<String> pollDue(int limit) {
+        List<Object> ids = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE,
+                POLL_DUE_SCRIPT, RScript.ReturnType.MULTI, Collections.singletonList(QUEUE_KEY),
+                String.valueOf(System.currentTimeMillis() / 1000), String.valueOf(limit));
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ids.stream().map(String::valueOf).collect(Collectors.toList());
+    }
+
+    private RScoredSortedSet<String> queue() {
+        return redissonClient.getScoredSortedSet(QUEUE_KEY, StringCodec.INSTANCE);
+    }
+}
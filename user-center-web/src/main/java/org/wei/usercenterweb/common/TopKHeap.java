@@ -0,0 +1,118 @@
+package org.wei.usercenterweb.common;
+
+/**
+ * 容量固定的小顶堆，用于从大量候选中选出分数最高的 k 个序号
+ * <p>
+ * 分数与序号分别存放在基本类型数组中，插入不产生任何对象；
+ * 分数相同时序号小的优先，因此结果与稳定排序后截取前 k 个一致
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+public final class TopKHeap {
+    private final double[] scores;
+
+    private final int[] ordinals;
+
+    private int size;
+
+    public TopKHeap(int capacity) {
+        this.scores = new double[Math.max(capacity, 0)];
+        this.ordinals = new int[Math.max(capacity, 0)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 加入一个候选，堆满时只有优于堆顶（当前最差）的候选才会替换堆顶
+     *
+     * @param score   分数
+     * @param ordinal 序号
+     */
+    public void offer(double score, int ordinal) {
+        if (size < scores.length) {
+            scores[size] = score;
+            ordinals[size] = ordinal;
+            siftUp(size++);
+        } else if (size > 0 && better(score, ordinal, scores[0], ordinals[0])) {
+            scores[0] = score;
+            ordinals[0] = ordinal;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * 合并另一个堆中的全部候选
+     */
+    public void merge(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.scores[i], other.ordinals[i]);
+        }
+    }
+
+    /**
+     * 按分数降序取出全部序号，调用后堆被清空
+     *
+     * @return 序号
+     */
+    public int[] drainDescending() {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = ordinals[0];
+            size--;
+            if (size > 0) {
+                scores[0] = scores[size];
+                ordinals[0] = ordinals[size];
+                siftDown(0);
+            }
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(scores[parent], ordinals[parent], scores[index], ordinals[index])) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = index * 2 + 1;
+            int right = left + 1;
+            if (left < size && better(scores[worst], ordinals[worst], scores[left], ordinals[left])) {
+                worst = left;
+            }
+            if (right < size && better(scores[worst], ordinals[worst], scores[right], ordinals[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(worst, index);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int ordinal = ordinals[i];
+        ordinals[i] = ordinals[j];
+        ordinals[j] = ordinal;
+    }
+
+    private static boolean better(double score, int ordinal, double otherScore, int otherOrdinal) {
+        int cmp = Double.compare(score, otherScore);
+        return cmp != 0 ? cmp > 0 : ordinal < otherOrdinal;
+    }
+}
@@ -1,64 +1,202 @@
 package org.wei.usercenterweb.common;
 
-import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.wei.usercenterweb.domain.User;
+import org.wei.usercenterweb.domain.response.UserInformation;
 
+import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
 
 /**
  * 存储用户数据缓存
+ * <p>
+ * 采用写时复制：每次刷新都在旁路构建一个新的不可变 {@link UserDirectory}，再通过 volatile 引用整体替换，
+ * 读请求无需加锁，也不会看到清空到一半的数据
  *
  * @author JiangWeiWei
  */
 @Component
 public class UserCache {
-    private final Map<String, User> userMap = new ConcurrentHashMap<>();
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
-    public void refreshCache(List<User> users) {
-        lock.writeLock().lock();
-        try {
-            userMap.clear();
-            users.forEach(u -> userMap.put(u.getUserId(), u));
-        } finally {
-            lock.writeLock().unlock();
-        }
+    private volatile UserDirectory directory = UserDirectory.empty();
+
+    /**
+     * 字符串缓冲区是否使用堆外内存
+     */
+    @Value("${user.cache.off-heap:false}")
+    private boolean offHeap;
+
+    @Resource
+    private ReferralScoringEngine scoringEngine;
+
+    public synchronized void refreshCache(List<User> users) {
+        UserDirectory.Builder builder = UserDirectory.builder(users.size(), offHeap);
+        users.forEach(builder::add);
+        directory = builder.build();
+    }
+
+    /**
+     * 以已构建好的用户目录（如从快照解码）整体替换缓存
+     *
+     * @param directory 用户目录
+     */
+    public synchronized void replaceDirectory(UserDirectory directory) {
+        this.directory = directory;
     }
 
-    public User getUserById(String id) {
-        lock.readLock().lock();
-        try {
-            return userMap.get(id);
-        } finally {
-            lock.readLock().unlock();
+    /**
+     * 增量更新缓存：替换或追加变更的用户，并移除已失效（封禁、删除）的用户
+     * <p>
+     * 与缓存内容相同的用户、缓存中不存在的失效用户会被忽略，没有实际变更时不重建用户目录
+     *
+     * @param upserts    新增或修改的用户
+     * @param removedIds 需要移除的用户id
+     * @return 实际变更的用户数量
+     */
+    public synchronized int applyDelta(List<User> upserts, Collection<String> removedIds) {
+        if (upserts.isEmpty() && removedIds.isEmpty()) {
+            return 0;
         }
+
+        UserDirectory current = directory;
+        BitSet removed = new BitSet(current.size());
+        for (String id : removedIds) {
+            int ordinal = current.ordinalOf(id);
+            if (ordinal >= 0) {
+                removed.set(ordinal);
+            }
+        }
+        Map<Integer, User> replaced = new HashMap<>();
+        List<User> appended = new ArrayList<>();
+        for (User user : upserts) {
+            int ordinal = current.ordinalOf(user.getUserId());
+            if (ordinal < 0) {
+                appended.add(user);
+            } else if (!current.sameAs(ordinal, user)) {
+                replaced.put(ordinal, user);
+            }
+        }
+        if (removed.isEmpty() && replaced.isEmpty() && appended.isEmpty()) {
+            return 0;
+        }
+
+        // 保持原有序号顺序，已有用户原位替换，新用户追加在末尾
+        directory = current.withChanges(removed, replaced, appended);
+        return removed.cardinality() + replaced.size() + appended.size();
+    }
+
+    public UserInformation getUserById(String id) {
+        UserDirectory current = directory;
+        int ordinal = current.ordinalOf(id);
+        return ordinal < 0 ? null : current.toUserInformation(ordinal);
     }
 
     /**
-     * 获取除当前用户的全部用户信息
+     * 按创建时间倒序获取除当前用户外的用户
      *
-     * @param currentUserId 用户id
-     * @return 除当前用户的全部用户信息
+     * @param currentUserId 需要排除的用户id
+     * @param offset        跳过的数量
+     * @param limit         最多返回数量
+     * @return 用户信息
      */
-    public List<User> getUserNotIdList(String currentUserId) {
-        lock.readLock().lock();
-        try {
-            if (StringUtils.isBlank(currentUserId)) {
-                return new ArrayList<>(userMap.values());
+    public List<UserInformation> getLatestUsers(String currentUserId, int offset, int limit) {
+        UserDirectory current = directory;
+        if (offset < 0 || limit <= 0 || offset >= current.size()) {
+            return Collections.emptyList();
+        }
+        int excludeOrdinal = current.ordinalOf(currentUserId);
+        // 只保留前 offset + limit 个，无需对全部用户排序；容量不超过用户数量
+        TopKHeap heap = new TopKHeap((int) Math.min((long) offset + limit, current.size()));
+        for (int ordinal = 0; ordinal < current.size(); ordinal++) {
+            if (ordinal != excludeOrdinal) {
+                heap.offer(current.createTimeOf(ordinal), ordinal);
             }
+        }
+        return toUserInformation(current, heap.drainDescending(), offset);
+    }
+
+    /**
+     * 通过标签倒排索引获取与指定标签最相似的用户
+     *
+     * @param tags          当前用户标签
+     * @param currentUserId 需要排除的用户id
+     * @param offset        跳过的数量
+     * @param limit         最多返回数量
+     * @return 按相似度降序排列的用户
+     */
+    public List<UserInformation> getSimilarUsers(Collection<String> tags, String currentUserId, int offset, int limit) {
+        UserDirectory current = directory;
+        if (offset < 0 || limit <= 0 || offset >= current.size()) {
+            return Collections.emptyList();
+        }
+        int k = (int) Math.min((long) offset + limit, current.size());
+        return toUserInformation(current, topK(current, tags, currentUserId, k), offset);
+    }
+
+    /**
+     * 通过标签倒排索引获取与指定标签最相似的用户id
+     *
+     * @param tags          当前用户标签
+     * @param currentUserId 需要排除的用户id
+     * @param limit         最多返回数量
+     * @return 按相似度降序排列的用户id
+     */
+    public List<String> getSimilarUserIds(Collection<String> tags, String currentUserId, int limit) {
+        UserDirectory current = directory;
+        int[] ranked = topK(current, tags, currentUserId, limit);
+        List<String> userIds = new ArrayList<>(ranked.length);
+        for (int ordinal : ranked) {
+            userIds.add(current.userIdOf(ordinal));
+        }
+        return userIds;
+    }
+
+    /**
+     * 缓存中的用户数量
+     */
+    public int size() {
+        return directory.size();
+    }
+
+    /**
+     * 获取除当前用户外的用户数量
+     *
+     * @param currentUserId 需要排除的用户id
+     * @return 用户数量
+     */
+    public int countUsers(String currentUserId) {
+        UserDirectory current = directory;
+        return current.size() - (current.ordinalOf(currentUserId) >= 0 ? 1 : 0);
+    }
+
+    /**
+     * 获取除当前用户外拥有标签的用户数量
+     *
+     * @param currentUserId 需要排除的用户id
+     * @return 用户数量
+     */
+    public int countTaggedUsers(String currentUserId) {
+        UserDirectory current = directory;
+        int ordinal = current.ordinalOf(currentUserId);
+        boolean excludeCurrent = ordinal >= 0 && current.getTagIndex().isTagged(ordinal);
+        return current.getTagIndex().getTaggedUserCount() - (excludeCurrent ? 1 : 0);
+    }
+
+    private int[] topK(UserDirectory current, Collection<String> tags, String currentUserId, int k) {
+        return scoringEngine.topK(current.getTagIndex(), tags, current.ordinalOf(currentUserId), k);
+    }
 
-            return userMap.values().stream().
-                    filter(user -> !user.getUserId().equals(currentUserId))
-                    .collect(Collectors.toList());
-        } finally {
-            lock.readLock().unlock();
+    private static List<UserInformation> toUserInformation(UserDirectory current, int[] ranked, int offset) {
+        List<UserInformation> users = new ArrayList<>(Math.max(ranked.length - offset, 0));
+        for (int i = offset; i < ranked.length; i++) {
+            users.add(current.toUserInformation(ranked[i]));
         }
+        return users;
     }
-}
\ No newline at end of file
+}
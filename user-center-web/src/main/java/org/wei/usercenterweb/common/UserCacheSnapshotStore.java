@@ -0,0 +1,203 @@
+package org.wei.usercenterweb.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.CompositeCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.wei.usercenterweb.domain.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * 用户缓存快照
+ * <p>
+ * 主节点从数据库全量加载用户后，将用户目录编码为二进制快照（见 {@link UserDirectorySnapshot}）写入 Redis
+ * 并广播快照版本，其他节点直接读取快照重建本地缓存，不再各自查询数据库。写入时比较防护令牌，
+ * 令牌小于已保存快照的写入（暂停后恢复的旧主节点）会被拒绝。
+ * <p>
+ * 配置了快照文件时（默认不配置），主节点发布的快照同时保存到该文件；Redis 中没有快照或读取失败时
+ * 以内存映射方式读取文件并直接解码为用户目录，节点冷启动时无需等待数据库全量查询即可提供推荐
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/29
+ */
+@Slf4j
+@Component
+public class UserCacheSnapshotStore {
+    private static final String SNAPSHOT_KEY = "user:cache:snapshot";
+
+    private static final String SNAPSHOT_TOPIC = "user:cache:snapshot:published";
+
+    /**
+     * 令牌不小于已保存的令牌时写入快照，返回 1；否则返回 0
+     */
+    private static final String WRITE_SCRIPT =
+            "local current = tonumber(redis.call('hget', KEYS[1], 'token') or '0') "
+                    + "if tonumber(ARGV[1]) < current then return 0 end "
+                    + "redis.call('hset', KEYS[1], 'token', ARGV[1], 'version', ARGV[2], 'data', ARGV[3]) "
+                    + "return 1";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 快照文件路径，为空时不保存也不读取文件；多个节点可指向同一共享文件
+     */
+    @Value("${user.cache.snapshot-file:}")
+    private String snapshotFile;
+
+    /**
+     * 用户目录字符串缓冲区是否使用堆外内存
+     */
+    @Value("${user.cache.off-heap:false}")
+    private boolean offHeap;
+
+    private RTopic publishedTopic;
+
+    private final List<Integer> listenerIds = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        publishedTopic = redissonClient.getTopic(SNAPSHOT_TOPIC, StringCodec.INSTANCE);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        listenerIds.forEach(publishedTopic::removeListener);
+    }
+
+    /**
+     * 写入快照并通知其他节点
+     *
+     * @param fencingToken 主节点防护令牌
+     * @param users        全量用户
+     * @param watermark    快照对应的最大修改时间
+     * @return 令牌已过期、写入被拒绝时返回 false
+     */
+    public boolean publish(long fencingToken, List<User> users, String watermark) {
+        long version = System.currentTimeMillis();
+        byte[] data = UserDirectorySnapshot.encode(version, users, watermark);
+
+        Long written = redissonClient.getScript(ByteArrayCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, WRITE_SCRIPT,
+                RScript.ReturnType.INTEGER, Collections.singletonList(SNAPSHOT_KEY),
+                String.valueOf(fencingToken).getBytes(StandardCharsets.UTF_8),
+                String.valueOf(version).getBytes(StandardCharsets.UTF_8), data);
+        if (written == null || written == 0) {
+            log.warn("用户缓存快照写入被拒绝，fencingToken: {}", fencingToken);
+            return false;
+        }
+        publishedTopic.publish(String.valueOf(version));
+        log.info("用户缓存快照已发布，共{}条数据，{}字节，version: {}", users.size(), data.length, version);
+        writeFile(data);
+        return true;
+    }
+
+    /**
+     * 读取快照，版本与已加载的版本相同时不再读取数据
+     *
+     * @param loadedVersion 已加载的快照版本，没有时传 0
+     * @return 快照，不存在或版本未变化时返回 null
+     */
+    public UserDirectorySnapshot load(long loadedVersion) {
+        try {
+            RMap<String, byte[]> map = redissonClient.getMap(SNAPSHOT_KEY,
+                    new CompositeCodec(StringCodec.INSTANCE, ByteArrayCodec.INSTANCE));
+            byte[] version = map.get("version");
+            if (version != null) {
+                if (Long.parseLong(new String(version, StandardCharsets.UTF_8)) == loadedVersion) {
+                    return null;
+                }
+                byte[] data = map.get("data");
+                if (data != null) {
+                    return UserDirectorySnapshot.decode(ByteBuffer.wrap(data), offHeap);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取 Redis 用户缓存快照失败，尝试读取快照文件", e);
+        }
+        return loadFile(loadedVersion);
+    }
+
+    /**
+     * 以内存映射方式读取快照文件
+     *
+     * @param loadedVersion 已加载的快照版本，没有时传 0
+     * @return 快照，未配置、文件不存在或版本未变化时返回 null
+     */
+    private UserDirectorySnapshot loadFile(long loadedVersion) {
+        if (StringUtils.isBlank(snapshotFile)) {
+            return null;
+        }
+        Path path = Paths.get(snapshotFile);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long version = UserDirectorySnapshot.peekVersion(buffer);
+            if (version < 0 || version == loadedVersion) {
+                return null;
+            }
+            return UserDirectorySnapshot.decode(buffer, offHeap);
+        } catch (IOException e) {
+            log.warn("读取用户缓存快照文件失败，path: {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 主节点发布快照后写入文件，先写临时文件再原子替换，读取方不会读到写了一半的文件
+     */
+    private void writeFile(byte[] data) {
+        if (StringUtils.isBlank(snapshotFile)) {
+            return;
+        }
+        Path path = Paths.get(snapshotFile).toAbsolutePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, data);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("保存用户缓存快照文件失败，path: {}", path, e);
+        }
+    }
+
+    /**
+     * 监听快照发布
+     *
+     * @param listener 参数为快照版本
+     */
+    public void addListener(LongConsumer listener) {
+        listenerIds.add(publishedTopic.addListener(String.class,
+                (channel, version) -> listener.accept(Long.parseLong(version))));
+    }
+}
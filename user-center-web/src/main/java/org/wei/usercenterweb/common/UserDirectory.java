@@ -0,0 +1,471 @@
+package org.wei.usercenterweb.common;
+
+import org.wei.usercenterweb.domain.User;
+import org.wei.usercenterweb.domain.response.UserInformation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 列式存储的用户目录（不可变）
+ * <p>
+ * 每个用户对应一个从 0 开始的序号，各字段按列存放在平行数组中：
+ * 字符串统一以 UTF-8 写入一块共享缓冲区（可选堆外内存），只保存偏移量；
+ * 创建时间保存为秒级时间戳；标签保存为位向量（见 {@link UserTagIndex}）。
+ * 只有需要返回的用户才会物化为 {@link UserInformation}
+ * <p>
+ * 字符串缓冲区预留尾部空间，增量更新时变更用户的字符串追加到尾部，新旧目录共用同一块缓冲区，
+ * 旧目录只读取自身范围内的字节，不受追加影响；尾部空间不足或废弃字节过多时才分配新的缓冲区
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/26
+ */
+public final class UserDirectory {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 缺失的创建时间
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    static final int USER_ID = 0;
+    static final int USER_NAME = 1;
+    static final int USER_DESCRIPTION = 2;
+    static final int IMAGE_URL = 3;
+    static final int TAGS = 4;
+    static final int COLUMNS = 5;
+
+    /**
+     * 每个用户占用的偏移量个数：各列起始位置加上结束位置
+     */
+    private static final int STRIDE = COLUMNS + 1;
+
+    /**
+     * 字符串缓冲区最少预留的尾部空间（字节）
+     */
+    private static final int MIN_SPARE_BYTES = 4096;
+
+    private static final UserDirectory EMPTY = new Builder(0, false).build();
+
+    private final int size;
+
+    /**
+     * 共享字符串缓冲区
+     */
+    private final ByteBuffer strings;
+
+    /**
+     * 第 i 个用户第 c 列的字符串位于 [offsets[i * STRIDE + c], offsets[i * STRIDE + c + 1])，
+     * 同一用户的各列连续存放，不同用户之间不要求连续
+     */
+    private final int[] offsets;
+
+    /**
+     * 为 null 的字符串字段，下标为 i * COLUMNS + c
+     */
+    private final BitSet nulls;
+
+    /**
+     * 本目录写入缓冲区的字节末尾
+     */
+    private final int end;
+
+    /**
+     * 共用同一缓冲区的各代目录已写入的末尾，只有最新一代目录可以继续追加
+     */
+    private final AtomicInteger bufferEnd;
+
+    /**
+     * 创建时间（秒），缺失时为 {@link #NO_TIME}
+     */
+    private final long[] createTimes;
+
+    /**
+     * 用户id开放寻址哈希表，槽位保存序号 + 1，0 表示空槽
+     */
+    private final int[] idTable;
+
+    private final UserTagIndex tagIndex;
+
+    private UserDirectory(int size, ByteBuffer strings, int[] offsets, BitSet nulls, long[] createTimes,
+                          int end, AtomicInteger bufferEnd) {
+        this.size = size;
+        this.strings = strings;
+        this.offsets = offsets;
+        this.nulls = nulls;
+        this.createTimes = createTimes;
+        this.end = end;
+        this.bufferEnd = bufferEnd;
+        this.idTable = buildIdTable();
+        this.tagIndex = UserTagIndex.build(size, ordinal -> string(ordinal, TAGS));
+    }
+
+    public static UserDirectory empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(int expectedSize, boolean offHeap) {
+        return new Builder(expectedSize, offHeap);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public UserTagIndex getTagIndex() {
+        return tagIndex;
+    }
+
+    public long createTimeOf(int ordinal) {
+        return createTimes[ordinal];
+    }
+
+    public String userIdOf(int ordinal) {
+        return string(ordinal, USER_ID);
+    }
+
+    /**
+     * 根据用户id查询序号
+     *
+     * @param userId 用户id
+     * @return 序号，不存在时返回 -1
+     */
+    public int ordinalOf(String userId) {
+        if (userId == null || size == 0) {
+            return -1;
+        }
+        byte[] key = userId.getBytes(StandardCharsets.UTF_8);
+        int mask = idTable.length - 1;
+        for (int slot = hash(userId) & mask; ; slot = (slot + 1) & mask) {
+            int entry = idTable[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (equalsAt(entry - 1, USER_ID, key)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * 物化用户信息视图
+     *
+     * @param ordinal 序号
+     * @return 脱敏后的用户信息
+     */
+    public UserInformation toUserInformation(int ordinal) {
+        UserInformation information = new UserInformation();
+        information.setUserId(string(ordinal, USER_ID));
+        information.setUserName(string(ordinal, USER_NAME));
+        information.setUserDescription(string(ordinal, USER_DESCRIPTION));
+        information.setImageUrl(string(ordinal, IMAGE_URL));
+        information.setTags(string(ordinal, TAGS));
+        long createTime = createTimes[ordinal];
+        if (createTime != NO_TIME) {
+            information.setCreateTime(LocalDateTime.ofEpochSecond(createTime, 0, ZoneOffset.UTC).format(FORMATTER));
+        }
+        return information;
+    }
+
+    /**
+     * 判断目录中的用户与给定数据是否一致
+     *
+     * @param ordinal 序号
+     * @param user    用户数据
+     * @return 全部缓存字段都相同时返回 true
+     */
+    public boolean sameAs(int ordinal, User user) {
+        return createTimes[ordinal] == parseTime(user.getCreateTime())
+                && columnEquals(ordinal, USER_ID, user.getUserId())
+                && columnEquals(ordinal, USER_NAME, user.getUserName())
+                && columnEquals(ordinal, USER_DESCRIPTION, user.getUserDescription())
+                && columnEquals(ordinal, IMAGE_URL, user.getImageUrl())
+                && columnEquals(ordinal, TAGS, user.getTags());
+    }
+
+    /**
+     * 生成应用了变更的新目录，本目录保持不变
+     * <p>
+     * 保留的用户沿用原有字节，新增与修改的用户追加到缓冲区尾部；尾部空间不足、
+     * 本目录已不是最新一代或废弃字节超过一半时，整体压缩到新的缓冲区
+     *
+     * @param removed  需要移除的序号
+     * @param replaced 需要替换的序号及新数据
+     * @param appended 追加在末尾的新用户
+     * @return 新目录
+     */
+    UserDirectory withChanges(BitSet removed, Map<Integer, User> replaced, List<User> appended) {
+        // 1. 变更的用户按新序号顺序编码到临时缓冲区
+        Builder changes = new Builder(replaced.size() + appended.size(), false);
+        int newSize = size - removed.cardinality() + appended.size();
+        int keptBytes = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (removed.get(ordinal)) {
+                continue;
+            }
+            User user = replaced.get(ordinal);
+            if (user != null) {
+                changes.add(user);
+            } else {
+                keptBytes += offsets[ordinal * STRIDE + COLUMNS] - offsets[ordinal * STRIDE];
+            }
+        }
+        appended.forEach(changes::add);
+
+        // 2. 尾部放得下且废弃字节不超过一半时追加，否则压缩
+        int newEnd = end + changes.length;
+        boolean append = newEnd <= strings.capacity() && keptBytes + changes.length >= newEnd / 2
+                && bufferEnd.compareAndSet(end, newEnd);
+        if (!append) {
+            return compact(removed, replaced, appended, newSize);
+        }
+        ByteBuffer tail = strings.duplicate();
+        tail.position(end);
+        tail.put(changes.buffer, 0, changes.length);
+
+        int[] newOffsets = new int[newSize * STRIDE];
+        BitSet newNulls = new BitSet(newSize * COLUMNS);
+        long[] newCreateTimes = new long[newSize];
+        int target = 0;
+        int change = 0;
+        for (int ordinal = 0; ordinal < size + appended.size(); ordinal++) {
+            if (ordinal < size && removed.get(ordinal)) {
+                continue;
+            }
+            if (ordinal < size && !replaced.containsKey(ordinal)) {
+                System.arraycopy(offsets, ordinal * STRIDE, newOffsets, target * STRIDE, STRIDE);
+                copyNulls(nulls, ordinal, newNulls, target);
+                newCreateTimes[target++] = createTimes[ordinal];
+                continue;
+            }
+            for (int i = 0; i < STRIDE; i++) {
+                newOffsets[target * STRIDE + i] = end + changes.offsets[change * STRIDE + i];
+            }
+            copyNulls(changes.nulls, change, newNulls, target);
+            newCreateTimes[target++] = changes.createTimes[change++];
+        }
+        return new UserDirectory(newSize, strings, newOffsets, newNulls, newCreateTimes, newEnd, bufferEnd);
+    }
+
+    private UserDirectory compact(BitSet removed, Map<Integer, User> replaced, List<User> appended, int newSize) {
+        Builder builder = new Builder(newSize, strings.isDirect());
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (removed.get(ordinal)) {
+                continue;
+            }
+            User user = replaced.get(ordinal);
+            if (user != null) {
+                builder.add(user);
+            } else {
+                builder.add(this, ordinal);
+            }
+        }
+        appended.forEach(builder::add);
+        return builder.build();
+    }
+
+    private static void copyNulls(BitSet source, int sourceOrdinal, BitSet target, int targetOrdinal) {
+        for (int column = 0; column < COLUMNS; column++) {
+            if (source.get(sourceOrdinal * COLUMNS + column)) {
+                target.set(targetOrdinal * COLUMNS + column);
+            }
+        }
+    }
+
+    String string(int ordinal, int column) {
+        if (nulls.get(ordinal * COLUMNS + column)) {
+            return null;
+        }
+        int index = ordinal * STRIDE + column;
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        if (strings.hasArray()) {
+            return new String(strings.array(), strings.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = strings.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean columnEquals(int ordinal, int column, String value) {
+        if (value == null) {
+            return nulls.get(ordinal * COLUMNS + column);
+        }
+        return equalsAt(ordinal, column, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean equalsAt(int ordinal, int column, byte[] key) {
+        int index = ordinal * STRIDE + column;
+        int start = offsets[index];
+        if (nulls.get(ordinal * COLUMNS + column) || offsets[index + 1] - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (strings.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] buildIdTable() {
+        int capacity = Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            String userId = string(ordinal, USER_ID);
+            if (userId == null) {
+                continue;
+            }
+            int slot = hash(userId) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = ordinal + 1;
+        }
+        return table;
+    }
+
+    private static int hash(String userId) {
+        int h = userId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    static long parseTime(String time) {
+        if (time == null || time.length() < 19) {
+            return NO_TIME;
+        }
+        try {
+            return LocalDateTime.parse(time.substring(0, 19), FORMATTER).toEpochSecond(ZoneOffset.UTC);
+        } catch (Exception e) {
+            return NO_TIME;
+        }
+    }
+
+    /**
+     * 用户目录构建器，按追加顺序分配序号
+     */
+    public static final class Builder {
+        private final boolean offHeap;
+
+        private byte[] buffer;
+        private int length;
+        private int[] offsets;
+        private final BitSet nulls = new BitSet();
+        private long[] createTimes;
+        private int size;
+
+        private Builder(int expectedSize, boolean offHeap) {
+            this.offHeap = offHeap;
+            int capacity = Math.max(expectedSize, 16);
+            this.buffer = new byte[capacity * 64];
+            this.offsets = new int[capacity * STRIDE];
+            this.createTimes = new long[capacity];
+        }
+
+        /**
+         * 追加一个用户
+         */
+        public Builder add(User user) {
+            ensureCapacity();
+            offsets[size * STRIDE] = length;
+            appendString(USER_ID, user.getUserId());
+            appendString(USER_NAME, user.getUserName());
+            appendString(USER_DESCRIPTION, user.getUserDescription());
+            appendString(IMAGE_URL, user.getImageUrl());
+            appendString(TAGS, user.getTags());
+            createTimes[size] = parseTime(user.getCreateTime());
+            size++;
+            return this;
+        }
+
+        /**
+         * 追加一个已编码为 UTF-8 的用户，null 表示字段为空
+         */
+        Builder add(byte[] userId, byte[] userName, byte[] userDescription, byte[] imageUrl, byte[] tags,
+                    long createTime) {
+            ensureCapacity();
+            offsets[size * STRIDE] = length;
+            appendBytes(USER_ID, userId);
+            appendBytes(USER_NAME, userName);
+            appendBytes(USER_DESCRIPTION, userDescription);
+            appendBytes(IMAGE_URL, imageUrl);
+            appendBytes(TAGS, tags);
+            createTimes[size] = createTime;
+            size++;
+            return this;
+        }
+
+        /**
+         * 从已有目录中复制一个用户，无需重新编码字符串
+         */
+        public Builder add(UserDirectory source, int ordinal) {
+            ensureCapacity();
+            int base = size * STRIDE;
+            int sourceBase = ordinal * STRIDE;
+            int start = source.offsets[sourceBase];
+            int end = source.offsets[sourceBase + COLUMNS];
+            ensureBuffer(end - start);
+            ByteBuffer view = source.strings.duplicate();
+            view.position(start);
+            view.get(buffer, length, end - start);
+            for (int i = 0; i < STRIDE; i++) {
+                offsets[base + i] = length + source.offsets[sourceBase + i] - start;
+            }
+            length += end - start;
+            copyNulls(source.nulls, ordinal, nulls, size);
+            createTimes[size] = source.createTimes[ordinal];
+            size++;
+            return this;
+        }
+
+        public UserDirectory build() {
+            // 预留尾部空间供后续增量更新追加
+            int capacity = length + Math.max(length / 8, MIN_SPARE_BYTES);
+            ByteBuffer strings = offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            strings.put(buffer, 0, length);
+            strings.clear();
+            return new UserDirectory(size, strings, Arrays.copyOf(offsets, size * STRIDE),
+                    (BitSet) nulls.clone(), Arrays.copyOf(createTimes, size), length, new AtomicInteger(length));
+        }
+
+        private void appendString(int column, String value) {
+            appendBytes(column, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void appendBytes(int column, byte[] bytes) {
+            if (bytes == null) {
+                nulls.set(size * COLUMNS + column);
+            } else {
+                ensureBuffer(bytes.length);
+                System.arraycopy(bytes, 0, buffer, length, bytes.length);
+                length += bytes.length;
+            }
+            offsets[size * STRIDE + column + 1] = length;
+        }
+
+        private void ensureCapacity() {
+            if (size == createTimes.length) {
+                createTimes = Arrays.copyOf(createTimes, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2 * STRIDE);
+            }
+        }
+
+        private void ensureBuffer(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+}
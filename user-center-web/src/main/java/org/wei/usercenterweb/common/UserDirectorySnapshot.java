@@ -0,0 +1,269 @@
+package org.wei.usercenterweb.common;
+
+import lombok.Getter;
+import org.wei.usercenterweb.domain.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 用户目录二进制快照
+ * <p>
+ * 格式（大端）：魔数 UCS1 | 格式版本(1) | 标志(1) | 快照版本(8) | 压缩后的正文。
+ * 正文依次为：字符串表（去重后的全部字符串，变长长度 + UTF-8）、水位线、用户数量、每个用户 7 列的字符串表序号
+ * （变长整数，0 表示 null）。用户按序号顺序排列，重复的标签、时间只保存一次，正文使用 Deflater 压缩。
+ * <p>
+ * 解码时流式解压（内存映射的文件不会整体复制到堆内），字符串表保留 UTF-8 字节，
+ * 按序号直接写入 {@link UserDirectory} 的字符串缓冲区，不再物化 {@link User} 对象
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/29
+ */
+@Getter
+public final class UserDirectorySnapshot {
+    private static final int MAGIC = 0x55435331;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte FLAG_DEFLATED = 1;
+
+    /**
+     * 每个用户保存的列数
+     */
+    private static final int COLUMNS = 7;
+
+    /**
+     * 字符串表中表示 null 的序号
+     */
+    private static final int NULL_REF = 0;
+
+    private final long version;
+
+    private final String watermark;
+
+    private final UserDirectory directory;
+
+    private UserDirectorySnapshot(long version, String watermark, UserDirectory directory) {
+        this.version = version;
+        this.watermark = watermark;
+        this.directory = directory;
+    }
+
+    /**
+     * 编码快照
+     *
+     * @param version   快照版本
+     * @param users     全量用户
+     * @param watermark 快照对应的最大修改时间
+     * @return 二进制快照
+     */
+    public static byte[] encode(long version, List<User> users, String watermark) {
+        // 1. 构建字符串表，序号 0 表示 null
+        Map<String, Integer> refs = new HashMap<>(users.size() * 4);
+        List<String> strings = new ArrayList<>();
+        int[] columns = new int[users.size() * COLUMNS];
+        int watermarkRef = intern(watermark, refs, strings);
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            int offset = i * COLUMNS;
+            columns[offset] = intern(user.getUserId(), refs, strings);
+            columns[offset + 1] = intern(user.getTags(), refs, strings);
+            columns[offset + 2] = intern(user.getUserName(), refs, strings);
+            columns[offset + 3] = intern(user.getUserDescription(), refs, strings);
+            columns[offset + 4] = intern(user.getImageUrl(), refs, strings);
+            columns[offset + 5] = intern(user.getCreateTime(), refs, strings);
+            columns[offset + 6] = intern(user.getUpdateTime(), refs, strings);
+        }
+
+        // 2. 写入头部与压缩后的正文
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(users.size() * 32, 1024));
+            DataOutputStream header = new DataOutputStream(bytes);
+            header.writeInt(MAGIC);
+            header.writeByte(FORMAT_VERSION);
+            header.writeByte(FLAG_DEFLATED);
+            header.writeLong(version);
+            header.flush();
+
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater, 64 * 1024))) {
+                writeVarInt(out, strings.size());
+                for (String value : strings) {
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(out, utf8.length);
+                    out.write(utf8);
+                }
+                writeVarInt(out, watermarkRef);
+                writeVarInt(out, users.size());
+                for (int ref : columns) {
+                    writeVarInt(out, ref);
+                }
+            } finally {
+                deflater.end();
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("用户目录快照编码失败", e);
+        }
+    }
+
+    /**
+     * 解码快照并构建用户目录，可直接读取内存映射的文件
+     *
+     * @param buffer  二进制快照
+     * @param offHeap 用户目录字符串缓冲区是否使用堆外内存
+     * @return 快照
+     * @throws IOException 格式不正确或数据损坏
+     */
+    public static UserDirectorySnapshot decode(ByteBuffer buffer, boolean offHeap) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        if (source.remaining() < 14 || source.getInt() != MAGIC) {
+            throw new IOException("不是用户目录快照");
+        }
+        byte formatVersion = source.get();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("不支持的快照格式版本: " + formatVersion);
+        }
+        byte flags = source.get();
+        long version = source.getLong();
+
+        InputStream body = new ByteBufferInputStream(source);
+        Inflater inflater = new Inflater();
+        if ((flags & FLAG_DEFLATED) != 0) {
+            body = new InflaterInputStream(body, inflater, 64 * 1024);
+        }
+        try (DataInputStream in = new DataInputStream(body)) {
+            // 序号 0 表示 null
+            int stringCount = readVarInt(in);
+            byte[][] strings = new byte[stringCount + 1][];
+            for (int i = 1; i <= stringCount; i++) {
+                strings[i] = new byte[readVarInt(in)];
+                in.readFully(strings[i]);
+            }
+
+            String watermark = toString(strings[readVarInt(in)]);
+            int size = readVarInt(in);
+            // 创建时间按字符串表序号只解析一次
+            long[] times = new long[stringCount + 1];
+            boolean[] parsed = new boolean[stringCount + 1];
+            UserDirectory.Builder builder = UserDirectory.builder(size, offHeap);
+            for (int i = 0; i < size; i++) {
+                byte[] userId = strings[readVarInt(in)];
+                byte[] tags = strings[readVarInt(in)];
+                byte[] userName = strings[readVarInt(in)];
+                byte[] userDescription = strings[readVarInt(in)];
+                byte[] imageUrl = strings[readVarInt(in)];
+                int createTimeRef = readVarInt(in);
+                // 修改时间只用于水位线，目录中不保存
+                readVarInt(in);
+                if (!parsed[createTimeRef]) {
+                    times[createTimeRef] = UserDirectory.parseTime(toString(strings[createTimeRef]));
+                    parsed[createTimeRef] = true;
+                }
+                builder.add(userId, userName, userDescription, imageUrl, tags, times[createTimeRef]);
+            }
+            return new UserDirectorySnapshot(version, watermark, builder.build());
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("用户目录快照数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 只读取快照版本
+     *
+     * @param buffer 二进制快照
+     * @return 快照版本，格式不正确时返回 -1
+     */
+    public static long peekVersion(ByteBuffer buffer) {
+        ByteBuffer source = buffer.duplicate();
+        if (source.remaining() < 14 || source.getInt() != MAGIC || source.get() != FORMAT_VERSION) {
+            return -1;
+        }
+        source.get();
+        return source.getLong();
+    }
+
+    private static String toString(byte[] utf8) {
+        return utf8 == null ? null : new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static int intern(String value, Map<String, Integer> refs, List<String> strings) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        Integer ref = refs.get(value);
+        if (ref == null) {
+            strings.add(value);
+            ref = strings.size();
+            refs.put(value, ref);
+        }
+        return ref;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    /**
+     * 以输入流方式读取 ByteBuffer，内存映射文件不需要先复制到堆内
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.wei.usercenterweb.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.wei.usercenterweb.domain.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 按主键缓存的用户行
+ * <p>
+ * 只缓存 {@code getById} 的结果，过期时间较短；用户数据写入后立即清除本地缓存，
+ * 并通过 Redis 发布订阅通知其他节点，事务内的写入在提交后再清除一次，避免提交前被旧数据回填。
+ * 读写都使用副本，调用方修改返回的对象不会影响缓存
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+@Slf4j
+@Component
+public class UserRowCache {
+    private static final String INVALIDATE_TOPIC = "user:row-cache:invalidate";
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    /**
+     * 最大缓存条目数
+     */
+    @Value("${user.row-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    /**
+     * 缓存过期时间（秒）
+     */
+    @Value("${user.row-cache.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    private Cache<String, User> rows;
+
+    private RTopic invalidateTopic;
+
+    private int listenerId;
+
+    @PostConstruct
+    public void init() {
+        rows = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+
+        invalidateTopic = redissonClient.getTopic(INVALIDATE_TOPIC, StringCodec.INSTANCE);
+        listenerId = invalidateTopic.addListener(String.class, (channel, userId) -> rows.invalidate(userId));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        invalidateTopic.removeListener(listenerId);
+    }
+
+    /**
+     * 读取用户，未命中时查询数据库并缓存，不存在的用户不缓存
+     *
+     * @param userId 用户id
+     * @param loader 查询数据库
+     * @return 用户副本，不存在时返回 null
+     */
+    public User get(String userId, Function<String, User> loader) {
+        if (userId == null) {
+            return null;
+        }
+        User user = rows.getIfPresent(userId);
+        if (user == null) {
+            user = loader.apply(userId);
+            if (user == null) {
+                return null;
+            }
+            rows.put(userId, copy(user));
+        }
+        return copy(user);
+    }
+
+    /**
+     * 用户数据写入后清除缓存
+     *
+     * @param userId 用户id
+     */
+    public void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidateNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(userId);
+                }
+            });
+        }
+    }
+
+    private void invalidateNow(String userId) {
+        rows.invalidate(userId);
+        try {
+            invalidateTopic.publish(userId);
+        } catch (Exception e) {
+            log.warn("广播用户缓存失效失败，userId: {}", userId, e);
+        }
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,302 @@
+package org.wei.usercenterweb.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * 用户标签倒排索引（标签 -> 用户序号列表）
+ * <p>
+ * 在缓存刷新时构建一次，推荐时只访问与当前用户至少有一个共同标签的用户
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/25
+ */
+public class UserTagIndex {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final UserTagIndex EMPTY = new UserTagIndex(new TagDictionary(), new int[0][], new long[0], 1, new boolean[0], 0);
+
+    /**
+     * 标签字典
+     */
+    @Getter
+    private final TagDictionary dictionary;
+
+    /**
+     * 标签 id -> 拥有该标签的用户序号（升序）
+     */
+    private final int[][] postings;
+
+    /**
+     * 用户标签位向量，序号为 i 的用户占用 [i * words, (i + 1) * words)
+     */
+    private final long[] vectors;
+
+    /**
+     * 每个用户位向量的长度（long 的个数）
+     */
+    private final int words;
+
+    /**
+     * 用户的标签字段是否非空
+     */
+    private final boolean[] tagged;
+
+    /**
+     * 标签字段非空的用户数量
+     */
+    @Getter
+    private final int taggedUserCount;
+
+    private UserTagIndex(TagDictionary dictionary, int[][] postings, long[] vectors, int words,
+                         boolean[] tagged, int taggedUserCount) {
+        this.dictionary = dictionary;
+        this.postings = postings;
+        this.vectors = vectors;
+        this.words = words;
+        this.tagged = tagged;
+        this.taggedUserCount = taggedUserCount;
+    }
+
+    public static UserTagIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 用户的标签字段是否非空
+     *
+     * @param ordinal 用户序号
+     */
+    public boolean isTagged(int ordinal) {
+        return tagged[ordinal];
+    }
+
+    /**
+     * 构建索引
+     *
+     * @param size   用户数量
+     * @param tagsOf 根据用户序号获取标签 JSON 字符串
+     * @return 倒排索引
+     */
+    public static UserTagIndex build(int size, IntFunction<String> tagsOf) {
+        boolean[] tagged = new boolean[size];
+        int taggedUserCount = 0;
+
+        // 1. 解析并驻留标签
+        TagDictionary dictionary = new TagDictionary();
+        int[][] tagIds = new int[size][];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            String tags = tagsOf.apply(ordinal);
+            if (StringUtils.isBlank(tags)) {
+                continue;
+            }
+            tagged[ordinal] = true;
+            taggedUserCount++;
+
+            tagIds[ordinal] = parseTags(tags).stream().mapToInt(dictionary::intern).toArray();
+        }
+
+        // 2. 构建位向量与倒排列表
+        int words = dictionary.words();
+        long[] vectors = new long[size * words];
+        int[] postingSizes = new int[dictionary.size()];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (tagIds[ordinal] == null) {
+                continue;
+            }
+            for (int id : tagIds[ordinal]) {
+                vectors[ordinal * words + (id >>> 6)] |= 1L << id;
+                postingSizes[id]++;
+            }
+        }
+        int[][] postings = new int[dictionary.size()][];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = new int[postingSizes[id]];
+            postingSizes[id] = 0;
+        }
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (tagIds[ordinal] == null) {
+                continue;
+            }
+            for (int id : tagIds[ordinal]) {
+                postings[id][postingSizes[id]++] = ordinal;
+            }
+        }
+
+        return new UserTagIndex(dictionary, postings, vectors, words, tagged, taggedUserCount);
+    }
+
+    /**
+     * 解析 JSON 格式的标签字段，解析失败时视为无标签
+     *
+     * @param tags 标签 JSON 字符串
+     * @return 去重后的标签
+     */
+    public static Set<String> parseTags(String tags) {
+        if (StringUtils.isBlank(tags)) {
+            return Collections.emptySet();
+        }
+        try {
+            return new LinkedHashSet<>(OBJECT_MAPPER.readValue(tags, new TypeReference<List<String>>() {
+            }));
+        } catch (Exception e) {
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * 按 Jaccard 相似度取前 k 个用户
+     * <p>
+     * 通过遍历当前标签的倒排列表找到共享标签的用户，用位向量计算相似度，再用容量为 k 的 {@link TopKHeap} 筛选；
+     * 若共享标签的用户不足 k 个，则按序号补充相似度为 0 的有标签用户
+     *
+     * @param tags           当前用户标签
+     * @param excludeOrdinal 需要排除的用户序号（当前用户），不排除时传 -1
+     * @param k              需要的数量，超过索引大小时按索引大小计算
+     * @return 按相似度降序排列的用户序号
+     */
+    public int[] topK(Collection<String> tags, int excludeOrdinal, int k) {
+        k = Math.min(k, tagged.length);
+        if (k <= 0) {
+            return new int[0];
+        }
+
+        Query query = query(tags);
+        TopKHeap heap = new TopKHeap(k);
+        BitSet visited = new BitSet(tagged.length);
+        for (int id : query.tagIds) {
+            for (int ordinal : postings[id]) {
+                if (visited.get(ordinal)) {
+                    continue;
+                }
+                visited.set(ordinal);
+                if (ordinal != excludeOrdinal) {
+                    heap.offer(similarity(query, ordinal), ordinal);
+                }
+            }
+        }
+        return complete(heap, query, excludeOrdinal, k);
+    }
+
+    /**
+     * 编码查询标签
+     *
+     * @param tags 当前用户标签
+     * @return 查询位向量
+     */
+    public Query query(Collection<String> tags) {
+        Set<String> querySet = new LinkedHashSet<>(tags);
+        // 不在词表中的标签不会与任何用户相交，但仍计入并集
+        int unknownTags = 0;
+        List<Integer> tagIds = new ArrayList<>(querySet.size());
+        for (String tag : querySet) {
+            int id = dictionary.idOf(tag);
+            if (id < 0) {
+                unknownTags++;
+            } else {
+                tagIds.add(id);
+            }
+        }
+        return new Query(dictionary.encode(querySet, words), unknownTags,
+                tagIds.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * 在序号区间 [from, to) 内对共享标签的用户打分，并保留前 k 个
+     * <p>
+     * 供并行打分按区间切分使用，每个区间互不重叠，可以安全地并发执行
+     *
+     * @param query          查询位向量
+     * @param from           起始序号（包含）
+     * @param to             结束序号（不包含）
+     * @param excludeOrdinal 需要排除的用户序号
+     * @param k              需要的数量
+     * @return 区间内的前 k 个
+     */
+    public TopKHeap scoreRange(Query query, int from, int to, int excludeOrdinal, int k) {
+        TopKHeap heap = new TopKHeap(k);
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            if (ordinal != excludeOrdinal && intersects(query, ordinal)) {
+                heap.offer(similarity(query, ordinal), ordinal);
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * 将堆中结果按相似度降序排列，不足 k 个时按序号补充相似度为 0 的有标签用户
+     *
+     * @param heap           打分结果
+     * @param query          查询位向量
+     * @param excludeOrdinal 需要排除的用户序号
+     * @param k              需要的数量
+     * @return 按相似度降序排列的用户序号
+     */
+    public int[] complete(TopKHeap heap, Query query, int excludeOrdinal, int k) {
+        k = Math.min(k, tagged.length);
+        int[] ranked = heap.drainDescending();
+        if (ranked.length >= k) {
+            return ranked;
+        }
+
+        int[] result = Arrays.copyOf(ranked, k);
+        int size = ranked.length;
+        for (int ordinal = 0; ordinal < tagged.length && size < k; ordinal++) {
+            if (tagged[ordinal] && ordinal != excludeOrdinal && !intersects(query, ordinal)) {
+                result[size++] = ordinal;
+            }
+        }
+        return size == k ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 索引中的用户数量
+     */
+    public int size() {
+        return tagged.length;
+    }
+
+    private boolean intersects(Query query, int ordinal) {
+        int base = ordinal * words;
+        for (int i = 0; i < words; i++) {
+            if ((query.vector[i] & vectors[base + i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double similarity(Query query, int ordinal) {
+        return TagDictionary.jaccard(query.vector, 0, vectors, ordinal * words, words, query.unknownTags);
+    }
+
+    /**
+     * 编码后的查询标签
+     */
+    public static final class Query {
+        private final long[] vector;
+
+        private final int unknownTags;
+
+        private final int[] tagIds;
+
+        private Query(long[] vector, int unknownTags, int[] tagIds) {
+            this.vector = vector;
+            this.unknownTags = unknownTags;
+            this.tagIds = tagIds;
+        }
+    }
+}
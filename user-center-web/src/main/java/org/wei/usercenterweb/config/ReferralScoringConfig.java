@@ -0,0 +1,36 @@
+package org.wei.usercenterweb.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * 推荐打分专用线程池
+ * <p>
+ * 与公共 ForkJoinPool 隔离，避免推荐打分与 parallelStream 等其他任务相互抢占
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+@Configuration
+public class ReferralScoringConfig {
+    /**
+     * 并行度，小于等于 0 时使用 CPU 核数
+     */
+    @Value("${user.referral.scoring.parallelism:0}")
+    private int parallelism;
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool referralScoringPool() {
+        int size = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(size, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("referral-scoring-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+}
@@ -17,6 +17,8 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 // 允许所有请求头
                 .allowedHeaders("*")
+                // 令牌登录方式下通过响应头返回令牌
+                .exposedHeaders("Authorization")
                 // 是否允许发送 Cookie，默认为 false
                 .allowCredentials(true)
                 // 预检请求的缓存时间（单位：秒）
@@ -9,4 +9,13 @@ package org.wei.usercenterweb.contains;
  */
 public interface UserConstants {
     String USER_INFORMATION = "userInformation";
+
+    String AUTHORIZATION = "Authorization";
+
+    String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * 当前请求中已解析的登录用户（请求属性）
+     */
+    String CURRENT_USER = "currentUser";
 }
@@ -23,10 +23,10 @@ import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
 import org.wei.usercenterweb.service.UserService;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.InputStream;
 import java.util.UUID;
 
-import static org.wei.usercenterweb.contains.UserConstants.USER_INFORMATION;
 import static org.wei.usercenterweb.utile.AccountValidatorUtil.validateAccount;
 import static org.wei.usercenterweb.utile.AccountValidatorUtil.validateAccountAndPassword;
 
@@ -91,7 +91,8 @@ public class UserController {
 
     @ApiOperation(value = "用户登录")
     @PostMapping("/login")
-    public ResponseResult<UserInformation> userLogin(@RequestBody UserRegisterRequest userRegister, HttpServletRequest request) {
+    public ResponseResult<UserInformation> userLogin(@RequestBody UserRegisterRequest userRegister, HttpServletRequest request,
+                                                     HttpServletResponse response) {
         String userCount = userRegister.getUserCount();
         String userPassword = userRegister.getUserPassword();
 
@@ -107,7 +108,7 @@ public class UserController {
             throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST, "密码格式不正确！");
         }
 
-        UserInformation userInformation = userService.userLogin(userCount, userPassword, request);
+        UserInformation userInformation = userService.userLogin(userCount, userPassword, request, response);
         if (userInformation == null) {
             return ResponseResult.fail("用户登录失败！");
         }
@@ -117,14 +118,16 @@ public class UserController {
     @ApiOperation(value = "用户注销")
     @PostMapping("/logout")
     public ResponseResult<String> userLogout(HttpServletRequest request) {
-        Object user = request.getSession().getAttribute(USER_INFORMATION);
-        if (user == null) {
-            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "用户未登录！");
-        }
-        request.getSession().removeAttribute(USER_INFORMATION);
+        userService.userLogout(request);
         return ResponseResult.success("注销成功");
     }
 
+    @ApiOperation(value = "续期登录令牌")
+    @PostMapping("/refreshToken")
+    public ResponseResult<UserInformation> refreshToken(HttpServletRequest request, HttpServletResponse response) {
+        return ResponseResult.success(userService.refreshToken(request, response), "续期成功");
+    }
+
     @ApiOperation(value = "获取登录用户信息")
     @GetMapping("/currentUser")
     public ResponseResult<UserInformation> userRegister(HttpServletRequest request) {
@@ -0,0 +1,32 @@
+package org.wei.usercenterweb.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * @author WeiWei
+ * @TableName 标签表
+ */
+@TableName(value = "tag")
+@Data
+public class Tag implements Serializable {
+
+    private static final long serialVersionUID = 3027464930914410516L;
+
+    /**
+     * 标签ID
+     */
+    @TableId(value = "tag_id", type = IdType.AUTO)
+    private Long tagId;
+
+    /**
+     * 标签名称
+     */
+    @TableField(value = "tag_name")
+    private String tagName;
+}
@@ -0,0 +1,34 @@
+package org.wei.usercenterweb.domain;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * @author WeiWei
+ * @TableName 用户标签关联表
+ */
+@TableName(value = "user_tag")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserTag implements Serializable {
+
+    private static final long serialVersionUID = 8420196135730442871L;
+
+    /**
+     * 用户ID
+     */
+    @TableField(value = "user_id")
+    private String userId;
+
+    /**
+     * 标签ID
+     */
+    @TableField(value = "tag_id")
+    private Long tagId;
+}
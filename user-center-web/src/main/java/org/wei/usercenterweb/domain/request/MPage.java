@@ -14,4 +14,21 @@ public class MPage {
     private Integer current = 1;
 
     private Integer pageSize = 10;
+
+    /**
+     * 游标分页：首页传空字符串，之后传上一页返回的 nextCursor；为 null 时使用普通分页
+     */
+    private String cursor;
+
+    /**
+     * 是否查询总数，游标分页默认不查询
+     */
+    private Boolean searchCount;
+
+    /**
+     * 是否需要查询总数
+     */
+    public boolean needCount() {
+        return searchCount != null ? searchCount : cursor == null;
+    }
 }
@@ -0,0 +1,35 @@
+package org.wei.usercenterweb.domain.response;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 游标分页结果，在普通分页结果的基础上返回下一页游标
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+@Getter
+@Setter
+public class CursorPage<T> extends Page<T> {
+    private static final long serialVersionUID = -2436409287317392715L;
+
+    /**
+     * 下一页游标，没有更多数据时为 null
+     */
+    private String nextCursor;
+
+    public static <T> CursorPage<T> of(IPage<T> page, String nextCursor) {
+        CursorPage<T> cursorPage = new CursorPage<>();
+        cursorPage.setCurrent(page.getCurrent());
+        cursorPage.setSize(page.getSize());
+        cursorPage.setTotal(page.getTotal());
+        cursorPage.setSearchCount(page.searchCount());
+        cursorPage.setRecords(page.getRecords());
+        cursorPage.setNextCursor(nextCursor);
+        return cursorPage;
+    }
+}
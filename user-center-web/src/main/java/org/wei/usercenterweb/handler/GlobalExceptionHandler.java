@@ -7,6 +7,8 @@ import org.wei.usercenterweb.common.ResponseResult;
 import org.wei.usercenterweb.common.StatusCodeEnum;
 import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
 
+import javax.servlet.http.HttpServletResponse;
+
 /**
  * 全局异常处理
  *
@@ -19,7 +21,7 @@ import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(CustomRuntimeExceptions.class)
-    public ResponseResult customRuntimeExceptions(CustomRuntimeExceptions e) {
+    public ResponseResult customRuntimeExceptions(CustomRuntimeExceptions e, HttpServletResponse response) {
         // 定义默认错误码
         StatusCodeEnum codeEnum = StatusCodeEnum.INTERNAL_SERVER_ERROR;
 
@@ -31,6 +33,12 @@ public class GlobalExceptionHandler {
 
         ResponseResult result = new ResponseResult(errorCode, errorMessage, null, e.getDetails());
 
+        // 限流与过载同时设置 HTTP 状态码，便于网关和客户端按状态码重试，其余错误仍只在响应体中返回错误码
+        if (errorCode == StatusCodeEnum.TOO_MANY_REQUESTS.getCode()
+                || errorCode == StatusCodeEnum.SERVICE_UNAVAILABLE.getCode()) {
+            response.setStatus(errorCode);
+        }
+
         log.error(result.toString());
         // 返回响应结果
         return result;
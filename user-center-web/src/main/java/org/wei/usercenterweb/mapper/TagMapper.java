@@ -0,0 +1,21 @@
+package org.wei.usercenterweb.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.wei.usercenterweb.domain.Tag;
+
+import java.util.Collection;
+
+/**
+ * @author WeiWei
+ * @description 针对表【tag】的数据库操作Mapper
+ * @Entity org.wei.usercenterweb.domain.Tag
+ */
+public interface TagMapper extends BaseMapper<Tag> {
+    /**
+     * 批量写入标签，已存在的标签忽略
+     *
+     * @param tagNames 标签名称
+     */
+    void insertIgnore(@Param("tagNames") Collection<String> tagNames);
+}
@@ -1,8 +1,12 @@
 package org.wei.usercenterweb.mapper;
 
+import org.apache.ibatis.annotations.Param;
 import org.wei.usercenterweb.domain.Team;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
 * @author JiangWeiWei
 * @description 针对表【team】的数据库操作Mapper
@@ -10,7 +14,62 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 * @Entity org.wei.usercenterweb.domain.Team
 */
 public interface TeamMapper extends BaseMapper<Team> {
+    /**
+     * 占用一个名额，队伍未满且未过期时当前人数加一
+     *
+     * @param teamId        队伍id
+     * @param overdueStatus 已过期状态
+     * @return 影响行数，0 表示队伍不存在、已过期或已满员
+     */
+    int reserveSeat(@Param("teamId") String teamId, @Param("overdueStatus") int overdueStatus);
+
+    /**
+     * 释放一个名额，当前人数减一
+     *
+     * @param teamId 队伍id
+     * @return 影响行数
+     */
+    int releaseSeat(@Param("teamId") String teamId);
+
+    /**
+     * 查询剩余名额
+     *
+     * @param teamId 队伍id
+     * @return 剩余名额，队伍不存在时返回 null
+     */
+    Integer selectFreeSeats(@Param("teamId") String teamId);
+
+    /**
+     * 查询并锁定已到过期时间、尚未处理的队伍
+     *
+     * @param teamIds       候选队伍id
+     * @param overdueStatus 已过期状态
+     * @param now           当前时间 yyyy-MM-dd HH:mm:ss，使用应用时钟，与过期队列一致
+     * @return 需要处理的队伍id
+     */
+    List<String> selectDueTeamIdsForUpdate(@Param("teamIds") Collection<String> teamIds,
+                                           @Param("overdueStatus") int overdueStatus, @Param("now") String now);
+
+    /**
+     * 分批查询已到过期时间、尚未处理的队伍，按 id 升序
+     *
+     * @param afterId       上一批最后一个队伍id，第一批传 null
+     * @param limit         每批数量
+     * @param overdueStatus 已过期状态
+     * @param now           当前时间 yyyy-MM-dd HH:mm:ss
+     * @return 队伍id
+     */
+    List<String> selectDueTeamIds(@Param("afterId") String afterId, @Param("limit") int limit,
+                                  @Param("overdueStatus") int overdueStatus, @Param("now") String now);
 
+    /**
+     * 将队伍标记为过期并删除
+     *
+     * @param teamIds       队伍id
+     * @param overdueStatus 已过期状态
+     * @return 影响行数
+     */
+    int expireTeams(@Param("teamIds") Collection<String> teamIds, @Param("overdueStatus") int overdueStatus);
 }
 
 
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Param;
 import org.wei.usercenterweb.domain.TeamMember;
 
+import java.util.Collection;
+
 /**
  * @author JiangWeiWei
  * @description 针对表【team_member】的数据库操作Mapper
@@ -28,6 +30,31 @@ public interface TeamMemberMapper extends BaseMapper<TeamMember> {
      * @param status 成员状态
      */
     void modifyPartyMemberStatus(@Param("userId") String userId, @Param("teamId") String teamId, @Param("status") int status);
+
+    /**
+     * 恢复已退出的队伍成员
+     *
+     * @param userId 用户id
+     * @param teamId 队伍id
+     * @return 影响行数，0 表示没有已退出的记录
+     */
+    int rejoin(@Param("userId") String userId, @Param("teamId") String teamId);
+
+    /**
+     * 插入队伍成员，已存在（unique_member）时忽略
+     *
+     * @param member 队伍成员
+     * @return 影响行数，0 表示已是队伍成员
+     */
+    int insertIgnore(TeamMember member);
+
+    /**
+     * 移除多个队伍的全部成员（逻辑删除）
+     *
+     * @param teamIds 队伍id
+     * @return 影响行数
+     */
+    int removeByTeamIds(@Param("teamIds") Collection<String> teamIds);
 }
 
 
@@ -1,17 +1,56 @@
 package org.wei.usercenterweb.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import org.apache.ibatis.annotations.Param;
+import org.wei.usercenterweb.common.PageCursor;
 import org.wei.usercenterweb.domain.User;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author WeiWei
  * @version V5.0.0
  * @date 2025/3/5
 */
 public interface UserMapper extends BaseMapper<User> {
+    /**
+     * 查询修改时间不早于水位线的用户（包含已封禁、已删除的数据，用于增量刷新缓存）
+     *
+     * @param since          水位线 yyyy-MM-dd HH:mm:ss
+     * @param overlapSeconds 向前回溯的秒数，避免漏掉延迟提交的事务
+     * @return 变更的用户
+     */
+    List<User> selectChangedSince(@Param("since") String since, @Param("overlapSeconds") int overlapSeconds);
 
-}
-
-
+    /**
+     * 分页查询同时拥有全部指定标签的正常用户
+     *
+     * @param page          分页条件
+     * @param tagIds        标签id
+     * @param tagCount      标签数量
+     * @param currentUserId 需要排除的用户id
+     * @param cursor        游标位置，为 null 时从第一条开始
+     * @return 按创建时间倒序排列的用户
+     */
+    IPage<User> selectPageByTagIds(IPage<User> page, @Param("tagIds") Collection<Long> tagIds,
+                                   @Param("tagCount") int tagCount, @Param("currentUserId") String currentUserId,
+                                   @Param("cursor") PageCursor cursor);
 
+    /**
+     * 统计同时拥有全部指定标签的正常用户数量
+     *
+     * @param tagIds   标签id
+     * @param tagCount 标签数量
+     * @return 用户数量
+     */
+    long countByTagIds(@Param("tagIds") Collection<Long> tagIds, @Param("tagCount") int tagCount);
 
+    /**
+     * 根据表统计信息估算用户表行数
+     *
+     * @return 估算行数
+     */
+    Long estimateRowCount();
+}
@@ -0,0 +1,22 @@
+package org.wei.usercenterweb.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.wei.usercenterweb.domain.UserTag;
+
+import java.util.Collection;
+
+/**
+ * @author WeiWei
+ * @description 针对表【user_tag】的数据库操作Mapper
+ * @Entity org.wei.usercenterweb.domain.UserTag
+ */
+public interface UserTagMapper extends BaseMapper<UserTag> {
+    /**
+     * 批量写入用户标签关联
+     *
+     * @param userId 用户id
+     * @param tagIds 标签id
+     */
+    void insertBatch(@Param("userId") String userId, @Param("tagIds") Collection<Long> tagIds);
+}
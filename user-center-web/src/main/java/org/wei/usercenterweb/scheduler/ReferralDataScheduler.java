@@ -7,16 +7,26 @@ import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RBucket;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.wei.usercenterweb.common.ClusterLeader;
+import org.wei.usercenterweb.common.ReferralListCache;
 import org.wei.usercenterweb.common.UserCache;
+import org.wei.usercenterweb.common.UserCacheSnapshotStore;
+import org.wei.usercenterweb.common.UserDirectorySnapshot;
 import org.wei.usercenterweb.domain.User;
 import org.wei.usercenterweb.domain.response.UserInformation;
 import org.wei.usercenterweb.service.UserService;
+import org.wei.usercenterweb.utile.CommonUtil;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -39,21 +49,168 @@ public class ReferralDataScheduler {
     @Resource
     private UserCache userCache;
 
+    @Resource
+    private ReferralListCache referralListCache;
+
+    @Resource
+    private ClusterLeader clusterLeader;
+
+    @Resource
+    private UserCacheSnapshotStore snapshotStore;
+
+    /**
+     * 增量刷新时向前回溯的秒数，避免遗漏修改时间相同或延迟提交的数据
+     */
+    @Value("${user.cache.delta-overlap-seconds:5}")
+    private int deltaOverlapSeconds;
+
+    /**
+     * 快照最长有效时间（分钟），超过后认为主节点已停止发布，其他节点改为自行查询数据库
+     */
+    @Value("${user.cache.snapshot-max-age-minutes:65}")
+    private long snapshotMaxAgeMinutes;
+
+    /**
+     * 已同步到缓存的最大修改时间
+     */
+    private volatile String watermark;
+
+    /**
+     * 已加载的用户缓存快照版本
+     */
+    private volatile long snapshotVersion;
+
+    @PostConstruct
+    public void init() {
+        // 启动时先加载已有快照，无需等待数据库全量查询即可提供推荐；主节点随后仍会从数据库刷新
+        syncFromSnapshot();
+        // 主节点发布新快照后其他节点立即加载
+        snapshotStore.addListener(version -> {
+            if (!clusterLeader.isLeader()) {
+                syncFromSnapshot();
+            }
+        });
+    }
+
+    /**
+     * 全量刷新：只有主节点查询数据库并发布快照，其他节点加载快照；快照不存在或已过期时各节点自行查询
+     */
     @Scheduled(fixedRate = 30, timeUnit = TimeUnit.MINUTES)
     public void refreshUserCache() {
+        if (!clusterLeader.isLeader() && syncFromSnapshot()) {
+            return;
+        }
+
         log.info("开始刷新用户缓存");
         try {
             List<User> users = userService.list(new LambdaQueryWrapper<User>()
-                    .select(User::getUserId, User::getTags, User::getUserName, User::getUserDescription, User::getImageUrl)
+                    .select(User::getUserId, User::getTags, User::getUserName, User::getUserDescription, User::getImageUrl,
+                            User::getCreateTime, User::getUpdateTime)
                     .eq(User::getUserStatus, 0));
 
             userCache.refreshCache(users);
+            watermark = users.stream()
+                    .map(User::getUpdateTime)
+                    .filter(Objects::nonNull)
+                    .max(Comparator.naturalOrder())
+                    .orElse(CommonUtil.getTheCurrentTime());
             log.info("用户缓存刷新完成，共加载{}条数据", users.size());
+
+            long fencingToken = clusterLeader.getFencingToken();
+            if (fencingToken > 0) {
+                snapshotStore.publish(fencingToken, users, watermark);
+            }
         } catch (Exception e) {
             log.error("缓存刷新失败", e);
         }
     }
 
+    /**
+     * 从快照重建用户缓存
+     *
+     * @return 已加载的快照未超过最长有效时间时返回 true；快照不存在、读取失败或已过期时返回 false
+     */
+    private synchronized boolean syncFromSnapshot() {
+        try {
+            UserDirectorySnapshot snapshot = snapshotStore.load(snapshotVersion);
+            if (snapshot != null) {
+                userCache.replaceDirectory(snapshot.getDirectory());
+                watermark = snapshot.getWatermark();
+                snapshotVersion = snapshot.getVersion();
+                log.info("已从快照加载用户缓存，共{}条数据，version: {}", snapshot.getDirectory().size(), snapshotVersion);
+            }
+        } catch (Exception e) {
+            log.error("加载用户缓存快照失败", e);
+        }
+        // 快照版本为发布时的毫秒时间戳
+        return snapshotVersion != 0
+                && System.currentTimeMillis() - snapshotVersion <= TimeUnit.MINUTES.toMillis(snapshotMaxAgeMinutes);
+    }
+
+    /**
+     * 增量刷新：只拉取修改时间超过水位线的用户，封禁或删除的用户作为删除标记从缓存中移除
+     * <p>
+     * 回溯窗口内的数据每次都会重新查出，已应用过的数据与缓存内容相同，由 {@link UserCache#applyDelta} 忽略，
+     * 没有实际变更时不会重建用户目录
+     */
+    @Scheduled(fixedDelayString = "${user.cache.delta-refresh-delay:10000}",
+            initialDelayString = "${user.cache.delta-refresh-delay:10000}")
+    public void refreshUserCacheDelta() {
+        String since = watermark;
+        if (since == null) {
+            // 尚未完成全量加载
+            return;
+        }
+        try {
+            List<User> changedUsers = userService.listChangedSince(since, deltaOverlapSeconds);
+            if (changedUsers.isEmpty()) {
+                return;
+            }
+
+            List<User> upserts = new ArrayList<>();
+            List<String> removedIds = new ArrayList<>();
+            for (User user : changedUsers) {
+                boolean active = Integer.valueOf(0).equals(user.getUserStatus())
+                        && !Integer.valueOf(1).equals(user.getIsDelete());
+                if (active) {
+                    upserts.add(user);
+                } else {
+                    removedIds.add(user.getUserId());
+                }
+            }
+
+            int changed = userCache.applyDelta(upserts, removedIds);
+            String maxUpdateTime = changedUsers.get(changedUsers.size() - 1).getUpdateTime();
+            if (maxUpdateTime != null && maxUpdateTime.compareTo(since) > 0) {
+                watermark = maxUpdateTime;
+            }
+            if (changed > 0) {
+                log.debug("用户缓存增量刷新完成，变更{}条数据，水位线{}", changed, watermark);
+            }
+        } catch (Exception e) {
+            log.error("缓存增量刷新失败", e);
+        }
+    }
+
+    /**
+     * 为最近活跃的用户重新构建推荐列表
+     */
+    @Scheduled(fixedDelayString = "${user.referral.rebuild-delay:600000}",
+            initialDelayString = "${user.referral.rebuild-delay:600000}")
+    public void rebuildReferralLists() {
+        // 推荐列表保存在 Redis 中，由主节点构建即可
+        if (!clusterLeader.isLeader()) {
+            return;
+        }
+        log.info("开始构建用户推荐列表");
+        try {
+            int built = referralListCache.rebuildActiveLists();
+            log.info("用户推荐列表构建完成，共构建{}个列表", built);
+        } catch (Exception e) {
+            log.error("用户推荐列表构建失败", e);
+        }
+    }
+
     //    @Scheduled(cron = "* */30 * * * ?")
     public void runScheduleFixedRate() {
         String key = String.format("user:referral:data:%s:page_%d:%d:tags_%s",
@@ -1,21 +1,33 @@
 package org.wei.usercenterweb.scheduler;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.toolkit.CollectionUtils;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.wei.usercenterweb.common.ClusterLeader;
+import org.wei.usercenterweb.common.TeamExpirationQueue;
+import org.wei.usercenterweb.common.TeamStatusEnum;
 import org.wei.usercenterweb.domain.Team;
-import org.wei.usercenterweb.domain.TeamMember;
-import org.wei.usercenterweb.service.TeamMemberService;
 import org.wei.usercenterweb.service.TeamService;
 import org.wei.usercenterweb.utile.CommonUtil;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
- * 定期处理过期的队伍
+ * 处理过期的队伍
+ * <p>
+ * 队伍创建或修改时将过期时间登记到 Redis 过期队列，每秒取出已到期的队伍分批处理，不再每分钟扫描队伍表；
+ * 启动时和每小时对账一次，处理遗漏的过期队伍并重新登记未过期队伍，保证 Redis 数据丢失后也能恢复。
+ * 以上任务只在集群主节点执行
  *
  * @author WeiWei
  * @version V5.0.0
@@ -23,53 +35,144 @@ import java.util.List;
  */
 @Slf4j
 @Component
-public class TeamExpirationScheduler {
+public class TeamExpirationScheduler implements ApplicationRunner {
     private final TeamService teamService;
 
-    private final TeamMemberService teamMemberService;
+    private final TeamExpirationQueue teamExpirationQueue;
 
-    public TeamExpirationScheduler(TeamService teamService, TeamMemberService teamMemberService) {
+    private final ClusterLeader clusterLeader;
+
+    /**
+     * 每批处理的队伍数量，一批只需查询、更新、移除成员三次数据库往返
+     */
+    @Value("${user.team.expiration.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 取出后未能处理的队伍重新登记时的最少延迟（秒）
+     */
+    @Value("${user.team.expiration.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    public TeamExpirationScheduler(TeamService teamService, TeamExpirationQueue teamExpirationQueue,
+                                   ClusterLeader clusterLeader) {
         this.teamService = teamService;
-        this.teamMemberService = teamMemberService;
+        this.teamExpirationQueue = teamExpirationQueue;
+        this.clusterLeader = clusterLeader;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconcile();
     }
 
     /**
-     * 每分钟执行一次过期检查
+     * 处理过期队列中已到期的队伍，每次取出的一批在一个事务中处理
      */
-    @Scheduled(cron = "0 * * * * ?")
-    @Transactional(rollbackFor = Exception.class)
-    public void checkExpiredTeams() {
-        log.info("开始执行队伍过期检查任务...");
-
-        // 1. 查询所有未过期且未删除的队伍
-        List<Team> activeTeams = teamService.list(new LambdaQueryWrapper<Team>()
-                .lt(Team::getExpireTime, CommonUtil.getTheCurrentTime())
-                .and(qw -> qw.eq(Team::getIsDelete, 0).or().ne(Team::getStatus, 3)));
+    @Scheduled(fixedDelayString = "${user.team.expiration.poll-delay:1000}")
+    public void expireDueTeams() {
+        if (!clusterLeader.isLeader()) {
+            return;
+        }
+        try {
+            List<String> teamIds;
+            do {
+                teamIds = teamExpirationQueue.pollDue(batchSize);
+                expireDueChunk(teamIds);
+            } while (teamIds.size() >= batchSize);
+        } catch (Exception e) {
+            log.error("处理过期队列失败", e);
+        }
+    }
 
-        if (CollectionUtils.isEmpty(activeTeams)) {
-            log.info("没有需要处理的过期队伍");
+    /**
+     * 对账：分批处理已过期但未处理的队伍，并将未过期的队伍重新登记到过期队列
+     * <p>
+     * 每批单独提交，按 id 升序推进；中途失败时已提交的批次不受影响，未处理的队伍仍满足过期条件，下一次对账会继续处理
+     */
+    @Scheduled(cron = "${user.team.expiration.reconcile-cron:0 0 * * * ?}")
+    public void reconcile() {
+        if (!clusterLeader.isLeader()) {
             return;
         }
+        log.info("开始队伍过期对账...");
+        try {
+            int expired = 0;
+            String afterId = null;
+            List<String> dueIds;
+            do {
+                dueIds = teamService.listDueTeamIds(afterId, batchSize);
+                if (dueIds.isEmpty()) {
+                    break;
+                }
+                afterId = dueIds.get(dueIds.size() - 1);
+                try {
+                    expired += teamService.expireTeams(dueIds).size();
+                    log.info("队伍过期对账进度：已处理{}个，当前位置{}", expired, afterId);
+                } catch (Exception e) {
+                    log.error("处理一批过期队伍失败，当前位置{}", afterId, e);
+                }
+            } while (dueIds.size() >= batchSize);
 
-        // 2. 处理每个过期队伍
-        activeTeams.forEach(team -> {
-            try {
-                processExpiredTeam(team);
-                log.info("队伍[{}]已处理过期状态", team.getId());
-            } catch (Exception e) {
-                log.error("处理队伍[{}]过期时发生异常", team.getId(), e);
-            }
-        });
+            int scheduled = scheduleActiveTeams();
+            log.info("队伍过期对账完成，处理过期队伍{}个，登记未过期队伍{}个", expired, scheduled);
+        } catch (Exception e) {
+            log.error("队伍过期对账失败", e);
+        }
     }
 
-    public void processExpiredTeam(Team team) {
-        // 1. 更新队伍状态为过期
-        team.setStatus(3);
-        team.setIsDelete(1);
-        teamService.updateById(team);
+    /**
+     * 处理从过期队列取出的一批队伍，未处理的队伍仍有效时（过期时间被延后、处理失败）重新登记；
+     * 重新登记的时间至少延后 retryDelaySeconds，避免已过去的过期时间被每次轮询重复取出
+     */
+    private void expireDueChunk(List<String> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        Set<String> remaining = new HashSet<>(teamIds);
+        try {
+            List<String> expired = teamService.expireTeams(teamIds);
+            expired.forEach(remaining::remove);
+            log.info("已处理过期队伍{}个", expired.size());
+        } catch (Exception e) {
+            log.error("处理过期队伍失败，teamIds: {}", teamIds, e);
+        }
+        if (remaining.isEmpty()) {
+            return;
+        }
+        Map<String, String> expireTimes = new HashMap<>(remaining.size() * 2);
+        teamService.listByIds(remaining).stream()
+                .filter(team -> !TeamStatusEnum.OVERDUE.getStatus().equals(team.getStatus()))
+                .forEach(team -> expireTimes.put(team.getId(), team.getExpireTime()));
+        teamExpirationQueue.scheduleAll(expireTimes, retryDelaySeconds);
+    }
 
-        // 2. 移除所有成员关系（可选：保留成员记录）
-        teamMemberService.remove(new LambdaQueryWrapper<TeamMember>()
-                .eq(TeamMember::getTeamId, team.getId()));
+    /**
+     * 按 id 分批读取未过期的队伍并登记到过期队列
+     *
+     * @return 登记的队伍数量
+     */
+    private int scheduleActiveTeams() {
+        String now = CommonUtil.getTheCurrentTime();
+        int scheduled = 0;
+        String afterId = null;
+        List<Team> teams;
+        do {
+            LambdaQueryWrapper<Team> wrapper = new LambdaQueryWrapper<Team>()
+                    .select(Team::getId, Team::getExpireTime)
+                    .ne(Team::getStatus, TeamStatusEnum.OVERDUE.getStatus())
+                    .gt(Team::getExpireTime, now)
+                    .gt(afterId != null, Team::getId, afterId)
+                    .orderByAsc(Team::getId);
+            teams = teamService.page(new Page<>(1, batchSize, false), wrapper).getRecords();
+            if (teams.isEmpty()) {
+                break;
+            }
+            afterId = teams.get(teams.size() - 1).getId();
+            teamExpirationQueue.scheduleAll(teams.stream()
+                    .collect(Collectors.toMap(Team::getId, Team::getExpireTime)));
+            scheduled += teams.size();
+        } while (teams.size() >= batchSize);
+        return scheduled;
     }
 }
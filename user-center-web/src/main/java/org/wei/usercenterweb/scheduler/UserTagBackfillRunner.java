@@ -0,0 +1,44 @@
+package org.wei.usercenterweb.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.wei.usercenterweb.service.UserTagService;
+
+/**
+ * 一次性任务：为已有用户补全 user_tag 关联，开启 user.tag.backfill.enabled 后随应用启动执行
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "user.tag.backfill.enabled", havingValue = "true")
+public class UserTagBackfillRunner implements ApplicationRunner {
+    private final UserTagService userTagService;
+
+    /**
+     * 每批处理的用户数量
+     */
+    @Value("${user.tag.backfill.batch-size:500}")
+    private int batchSize;
+
+    public UserTagBackfillRunner(UserTagService userTagService) {
+        this.userTagService = userTagService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("开始补全用户标签关联");
+        try {
+            long processed = userTagService.backfill(batchSize);
+            log.info("用户标签关联补全完成，共处理{}个用户", processed);
+        } catch (Exception e) {
+            log.error("用户标签关联补全失败", e);
+        }
+    }
+}
@@ -7,6 +7,9 @@ import org.wei.usercenterweb.domain.request.TeamCreateRequest;
 import org.wei.usercenterweb.domain.request.TeamSearchRequest;
 import org.wei.usercenterweb.domain.response.TeamResponse;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author JiangWeiWei
  * @description 针对表【team】的数据库操作Service
@@ -40,6 +43,38 @@ public interface TeamService extends IService<Team> {
      */
     void joinTeam(String userId, String teamId, String password);
 
+    /**
+     * 占用一个名额
+     *
+     * @param teamId 队伍id
+     * @return 队伍不存在、已过期或已满员时返回 false
+     */
+    boolean reserveSeat(String teamId);
+
+    /**
+     * 释放一个名额
+     *
+     * @param teamId 队伍id
+     */
+    void releaseSeat(String teamId);
+
+    /**
+     * 处理一批到期的队伍：标记为过期并移除所有成员，整批在一个事务中提交
+     *
+     * @param teamIds 候选队伍id
+     * @return 本次处理的队伍id，未到期或已处理的队伍不包含在内
+     */
+    List<String> expireTeams(Collection<String> teamIds);
+
+    /**
+     * 分批查询已到过期时间、尚未处理的队伍，按 id 升序
+     *
+     * @param afterId 上一批最后一个队伍id，第一批传 null
+     * @param limit   每批数量
+     * @return 队伍id
+     */
+    List<String> listDueTeamIds(String afterId, int limit);
+
 
     /**
      * 查询队伍数据
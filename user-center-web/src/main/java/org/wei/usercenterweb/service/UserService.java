@@ -9,6 +9,8 @@ import org.wei.usercenterweb.domain.request.SearchUsersRequest;
 import org.wei.usercenterweb.domain.response.UserInformation;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
 
 /**
  * @author WeiWei
@@ -33,9 +35,29 @@ public interface UserService extends IService<User> {
      * @param userCount    账号
      * @param userPassword 密码
      * @param request      请求
+     * @param response     响应，令牌登录方式下通过响应头返回令牌
      * @return 用户信息（脱密）
      */
-    UserInformation userLogin(String userCount, String userPassword, HttpServletRequest request);
+    UserInformation userLogin(String userCount, String userPassword, HttpServletRequest request,
+                              HttpServletResponse response);
+
+    /**
+     * 用户注销
+     * <p>
+     * 令牌登录方式下令牌不在服务端保存，注销会使该用户在所有设备上签发的令牌同时失效
+     *
+     * @param request 请求
+     */
+    void userLogout(HttpServletRequest request);
+
+    /**
+     * 令牌登录方式下续期令牌：校验当前令牌未过期后签发新令牌，通过响应头返回
+     *
+     * @param request  请求
+     * @param response 响应
+     * @return 用户信息（脱密）
+     */
+    UserInformation refreshToken(HttpServletRequest request, HttpServletResponse response);
 
     /**
      * 查询用户列表
@@ -89,4 +111,13 @@ public interface UserService extends IService<User> {
      * @return 脱敏后分页数据
      */
     IPage<UserInformation> userInformationPage(IPage<User> page);
+
+    /**
+     * 查询修改时间不早于水位线的用户，包含已封禁、已删除的用户
+     *
+     * @param since          水位线 yyyy-MM-dd HH:mm:ss
+     * @param overlapSeconds 向前回溯的秒数
+     * @return 变更的用户
+     */
+    List<User> listChangedSince(String since, int overlapSeconds);
 }
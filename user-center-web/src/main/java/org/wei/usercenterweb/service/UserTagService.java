@@ -0,0 +1,40 @@
+package org.wei.usercenterweb.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import org.wei.usercenterweb.domain.UserTag;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author WeiWei
+ * @description 针对表【user_tag】的数据库操作Service
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+public interface UserTagService extends IService<UserTag> {
+
+    /**
+     * 根据用户的标签字段重建用户标签关联
+     *
+     * @param userId 用户id
+     * @param tags   JSON 格式的标签字段
+     */
+    void syncUserTags(String userId, String tags);
+
+    /**
+     * 查询标签id
+     *
+     * @param tagNames 标签名称
+     * @return 已存在的标签id
+     */
+    List<Long> getTagIds(Collection<String> tagNames);
+
+    /**
+     * 按用户id顺序分批为已有用户补全标签关联
+     *
+     * @param batchSize 每批处理的用户数量
+     * @return 处理的用户数量
+     */
+    long backfill(int batchSize);
+}
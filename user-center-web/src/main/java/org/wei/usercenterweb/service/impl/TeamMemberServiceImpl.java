@@ -146,8 +146,7 @@ public class TeamMemberServiceImpl extends ServiceImpl<TeamMemberMapper, TeamMem
         wrapper.eq(TeamMember::getUserId, userId).eq(TeamMember::getTeamId, teamId);
         remove(wrapper);
 
-        team.setNum(team.getNum() - 1);
-        teamService.updateById(team);
+        teamService.releaseSeat(teamId);
     }
 
     @Override
@@ -173,8 +172,7 @@ public class TeamMemberServiceImpl extends ServiceImpl<TeamMemberMapper, TeamMem
         wrapper.eq(TeamMember::getUserId, memberId).eq(TeamMember::getTeamId, teamId);
         remove(wrapper);
 
-        team.setNum(team.getNum() - 1);
-        teamService.updateById(team);
+        teamService.releaseSeat(teamId);
     }
 
 
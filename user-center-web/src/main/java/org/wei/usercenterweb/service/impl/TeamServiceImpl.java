@@ -6,35 +6,46 @@ import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import org.apache.commons.lang3.StringUtils;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.beans.BeanUtils;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wei.usercenterweb.common.CountCache;
+import org.wei.usercenterweb.common.PageCursor;
+import org.wei.usercenterweb.common.PasswordHasher;
+import org.wei.usercenterweb.common.TeamExpirationQueue;
 import org.wei.usercenterweb.common.TeamStatusEnum;
+import org.wei.usercenterweb.common.UserCache;
 import org.wei.usercenterweb.domain.Team;
 import org.wei.usercenterweb.domain.TeamMember;
 import org.wei.usercenterweb.domain.User;
 import org.wei.usercenterweb.domain.request.TeamCreateRequest;
 import org.wei.usercenterweb.domain.request.TeamSearchRequest;
+import org.wei.usercenterweb.domain.response.CursorPage;
 import org.wei.usercenterweb.domain.response.TeamResponse;
+import org.wei.usercenterweb.domain.response.UserInformation;
 import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
 import org.wei.usercenterweb.mapper.TeamMapper;
 import org.wei.usercenterweb.mapper.TeamMemberMapper;
 import org.wei.usercenterweb.service.TeamMemberService;
 import org.wei.usercenterweb.service.TeamService;
 import org.wei.usercenterweb.service.UserService;
-import org.wei.usercenterweb.utile.BCryptEncryption;
 import org.wei.usercenterweb.utile.CommonUtil;
 
 import javax.validation.Valid;
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -49,14 +60,56 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
     private final UserService userService;
     private final TeamMemberMapper teamMemberMapper;
     private final TeamMemberService teamMemberService;
-    private final RedissonClient redissonClient;
+    private final CountCache countCache;
+    private final UserCache userCache;
+    private final PasswordHasher passwordHasher;
+    private final TeamExpirationQueue teamExpirationQueue;
+    private final TransactionTemplate transactionTemplate;
 
     @Lazy
-    public TeamServiceImpl(UserService userService, TeamMemberMapper teamMemberMapper, TeamMemberService teamMemberService, RedissonClient redissonClient) {
+    public TeamServiceImpl(UserService userService, TeamMemberMapper teamMemberMapper, TeamMemberService teamMemberService,
+                           CountCache countCache, UserCache userCache, PasswordHasher passwordHasher,
+                           TeamExpirationQueue teamExpirationQueue, TransactionTemplate transactionTemplate) {
         this.userService = userService;
         this.teamMemberMapper = teamMemberMapper;
         this.teamMemberService = teamMemberService;
-        this.redissonClient = redissonClient;
+        this.countCache = countCache;
+        this.userCache = userCache;
+        this.passwordHasher = passwordHasher;
+        this.teamExpirationQueue = teamExpirationQueue;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public boolean save(Team entity) {
+        boolean saved = super.save(entity);
+        if (saved) {
+            countCache.invalidate(CountCache.TEAM);
+            teamExpirationQueue.schedule(entity.getId(), entity.getExpireTime());
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean updateById(Team entity) {
+        boolean updated = super.updateById(entity);
+        if (updated) {
+            countCache.invalidate(CountCache.TEAM);
+            if (!TeamStatusEnum.OVERDUE.getStatus().equals(entity.getStatus())) {
+                teamExpirationQueue.schedule(entity.getId(), entity.getExpireTime());
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        if (removed) {
+            countCache.invalidate(CountCache.TEAM);
+            teamExpirationQueue.cancel(id.toString());
+        }
+        return removed;
     }
 
     @Override
@@ -88,7 +141,7 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
 
         // 5. 密码加密存储
         if (TeamStatusEnum.ENCRYPT.getStatus().equals(team.getStatus())) {
-            team.setPassword(BCryptEncryption.encryptPassword(team.getPassword()));
+            team.setPassword(passwordHasher.hash(team.getPassword()));
         }
 
         // 6. 保存数据
@@ -146,7 +199,7 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
             }
             // 如果没有跟换密码，则不需要修改
             if (StringUtils.isNotBlank(request.getPassword())) {
-                team.setPassword(BCryptEncryption.encryptPassword(request.getPassword()));
+                team.setPassword(passwordHasher.hash(request.getPassword()));
             }
         } else {
             // 非加密队伍清空密码
@@ -180,64 +233,78 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public void joinTeam(String userId, String teamId, String password) {
-        RLock lock = redissonClient.getLock("lock:team:" + teamId);
-        
-        try {
-            // 尝试加锁（最多等待 30 秒，锁持有时间 10 秒）
-            if (!lock.tryLock(30, 10, TimeUnit.SECONDS)) {
-                throw new CustomRuntimeExceptions("系统繁忙，请稍后重试");
-            }
-
-            // 1. 基础验证
-            Team team = getById(teamId);
-
-            validateTeamValid(team);
-
-            // 2. 类型校验
-            switch (TeamStatusEnum.fromCode(team.getStatus())) {
-                case PUBLIC:
-                    long currentCount = teamMemberService.countByTeamId(team.getId());
-                    if (currentCount >= team.getMaxNum()) {
-                        throw new CustomRuntimeExceptions("队伍已满员");
-                    }
-                    break;
-                case PRIVATE:
-                    // TODO: 加入私密队伍需要验证
-                    break;
-                case ENCRYPT:
-                    if (StringUtils.isBlank(password)) {
-                        throw new CustomRuntimeExceptions("请输入队伍密码");
-                    }
-                    if (!BCryptEncryption.verifyPassword(password, team.getPassword())) {
-                        throw new CustomRuntimeExceptions("密码错误");
-                    }
-                    break;
-                default:
-                    throw new CustomRuntimeExceptions("未知的队伍类型");
-            }
-            TeamMember member = teamMemberMapper.recording(userId, teamId);
-            // 3. 添加成员
-            if (member != null) {
-                teamMemberMapper.modifyPartyMemberStatus(userId, teamId, 0);
-            } else {
-                member = new TeamMember();
-                member.setTeamId(team.getId());
+        // 1. 基础验证，加密队伍校验密码；哈希校验较慢，在事务外执行，不占用数据库连接
+        // TODO: 加入私密队伍需要验证
+        Team team = getById(teamId);
+        verifyTeamPassword(team, password);
+        TeamStatusEnum.fromCode(team.getStatus());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 2. 添加成员：先恢复已退出的记录，没有时插入，unique_member 冲突说明已在队伍中
+            if (teamMemberMapper.rejoin(userId, teamId) == 0) {
+                TeamMember member = new TeamMember();
+                member.setTeamId(teamId);
                 member.setUserId(userId);
                 member.setJoinTime(CommonUtil.getTheCurrentTime());
                 member.setIsLeader(0);
-                teamMemberService.save(member);
+                if (teamMemberMapper.insertIgnore(member) == 0) {
+                    throw new CustomRuntimeExceptions("已加入该队伍");
+                }
             }
 
-            // 4. 更新队伍信息
-            team.setNum(team.getNum() + 1);
-            updateById(team);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
-            lock.unlock();
+            // 3. 占用名额，条件更新代替分布式锁和成员计数，满员时回滚成员记录
+            if (!reserveSeat(teamId)) {
+                throw new CustomRuntimeExceptions("队伍已满员");
+            }
+        });
+    }
+
+    /**
+     * 占用名额；缓存的总数只在“可加入”条件下依赖人数，队伍因此满员时才需要失效
+     */
+    @Override
+    public boolean reserveSeat(String teamId) {
+        boolean reserved = baseMapper.reserveSeat(teamId, TeamStatusEnum.OVERDUE.getStatus()) > 0;
+        if (reserved && Integer.valueOf(0).equals(baseMapper.selectFreeSeats(teamId))) {
+            countCache.invalidate(CountCache.TEAM);
         }
+        return reserved;
+    }
+
+    /**
+     * 释放名额，满员的队伍因此变为可加入时才使总数缓存失效
+     */
+    @Override
+    public void releaseSeat(String teamId) {
+        if (baseMapper.releaseSeat(teamId) > 0 && Integer.valueOf(1).equals(baseMapper.selectFreeSeats(teamId))) {
+            countCache.invalidate(CountCache.TEAM);
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<String> expireTeams(Collection<String> teamIds) {
+        if (teamIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 锁定仍需处理的队伍，过期时间被延后或已被其他节点处理的队伍不会被选中
+        int overdueStatus = TeamStatusEnum.OVERDUE.getStatus();
+        List<String> dueIds = baseMapper.selectDueTeamIdsForUpdate(teamIds, overdueStatus,
+                CommonUtil.getTheCurrentTime());
+        if (dueIds.isEmpty()) {
+            return dueIds;
+        }
+        baseMapper.expireTeams(dueIds, overdueStatus);
+        teamMemberMapper.removeByTeamIds(dueIds);
+        countCache.invalidate(CountCache.TEAM);
+        return dueIds;
+    }
+
+    @Override
+    public List<String> listDueTeamIds(String afterId, int limit) {
+        return baseMapper.selectDueTeamIds(afterId, limit, TeamStatusEnum.OVERDUE.getStatus(),
+                CommonUtil.getTheCurrentTime());
     }
 
     @Override
@@ -267,27 +334,81 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
             );
         }
 
-        LambdaQueryWrapper<TeamMember> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(TeamMember::getUserId, userId).select(TeamMember::getTeamId);
-        List<TeamMember> teamMemberIds = teamMemberService.list(wrapper);
-        if (teamMemberIds != null && !teamMemberIds.isEmpty()) {
-            query.notIn(Team::getId, teamMemberIds.stream().map(TeamMember::getTeamId).collect(Collectors.toList()));
+        // 排除已加入的队伍：NOT EXISTS 反连接走 team_member (user_id, team_id) 唯一索引，
+        // SQL 不随用户已加入的队伍数量变长
+        query.notExists("select 1 from team_member tm where tm.team_id = team.id"
+                + " and tm.user_id = {0} and tm.is_delete = 0", userId);
+
+        // 总数单独查询并缓存，分页查询本身不再执行 COUNT
+        boolean useCursor = request.getCursor() != null;
+        Page<Team> page = new Page<>(useCursor ? 1 : request.getCurrent(), request.getPageSize(), false);
+        if (request.needCount()) {
+            String filterKey = String.format("search:user_%s:name_%s:status_%s:members_%s:joinable_%s",
+                    userId, request.getNameKeyword(), request.getStatus(), request.getMembers(), request.getJoinable());
+            page.setTotal(countCache.count(CountCache.TEAM, filterKey, () -> count(query)));
         }
 
-        IPage<Team> page = page(new Page<>(request.getCurrent(), request.getPageSize()), query);
-        // 5. 转换响应对象
-        return page.convert(team -> {
+        String nextCursor = null;
+        if (!useCursor) {
+            page(page, query);
+        } else {
+            // 游标分页：按 (create_time, id) 倒序定位，每页只扫描 pageSize 行
+            PageCursor cursor = PageCursor.decode(request.getCursor());
+            if (cursor != null) {
+                query.and(w -> w.lt(Team::getCreateTime, cursor.getCreateTime())
+                        .or(o -> o.eq(Team::getCreateTime, cursor.getCreateTime())
+                                .lt(Team::getId, cursor.getId())));
+            }
+            query.orderByDesc(Team::getCreateTime)
+                    .orderByDesc(Team::getId);
+            page(page, query);
+            List<Team> records = page.getRecords();
+            if (records.size() >= request.getPageSize()) {
+                Team last = records.get(records.size() - 1);
+                nextCursor = PageCursor.encode(last.getCreateTime(), last.getId());
+            }
+        }
+
+        // 5. 批量获取队长名称，再转换响应对象
+        Map<String, String> leaderNames = getUserNames(page.getRecords().stream()
+                .map(Team::getLeaderId)
+                .collect(Collectors.toSet()));
+        IPage<TeamResponse> responsePage = page.convert(team -> {
             TeamResponse response = new TeamResponse();
             BeanUtils.copyProperties(team, response);
-
-            User user = userService.getById(response.getLeaderId());
-            if (user != null) {
-                response.setLeaderName(user.getUserName());
-            }
+            response.setLeaderName(leaderNames.get(response.getLeaderId()));
 
             // 可补充其他转换逻辑（如成员信息）
             return response;
         });
+        return request.getCursor() == null ? responsePage : CursorPage.of(responsePage, nextCursor);
+    }
+
+    /**
+     * 批量获取用户名称，优先读取本地用户缓存，未命中的用户一次性查询数据库
+     *
+     * @param userIds 用户id
+     * @return 用户id -> 用户名称
+     */
+    private Map<String, String> getUserNames(Set<String> userIds) {
+        Map<String, String> userNames = new HashMap<>(userIds.size() * 2);
+        List<String> missingIds = new ArrayList<>();
+        for (String userId : userIds) {
+            UserInformation user = userCache.getUserById(userId);
+            if (user != null) {
+                userNames.put(userId, user.getUserName());
+            } else if (userId != null) {
+                missingIds.add(userId);
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(User::getUserId, User::getUserName)
+                    .in(User::getUserId, missingIds);
+            userService.list(wrapper).forEach(user -> userNames.put(user.getUserId(), user.getUserName()));
+        }
+        return userNames;
     }
 
     public static void validateTeamValid(Team team) {
@@ -300,6 +421,25 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         }
     }
 
+    /**
+     * 校验加密队伍的密码
+     *
+     * @param team     队伍
+     * @param password 用户输入的密码
+     */
+    private void verifyTeamPassword(Team team, String password) {
+        validateTeamValid(team);
+        if (!TeamStatusEnum.ENCRYPT.getStatus().equals(team.getStatus())) {
+            return;
+        }
+        if (StringUtils.isBlank(password)) {
+            throw new CustomRuntimeExceptions("请输入队伍密码");
+        }
+        if (!passwordHasher.verify("team:" + team.getId(), password, team.getPassword())) {
+            throw new CustomRuntimeExceptions("密码错误");
+        }
+    }
+
     public void permissionVerification(Team team, String currentUserId) {
         boolean isLeader = team.getLeaderId().equals(currentUserId);
         if (!isLeader) {
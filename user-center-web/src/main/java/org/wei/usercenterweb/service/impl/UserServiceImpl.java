@@ -1,43 +1,53 @@
 package org.wei.usercenterweb.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.redisson.api.RBucket;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.wei.usercenterweb.common.AuthTokenManager;
+import org.wei.usercenterweb.common.CountCache;
+import org.wei.usercenterweb.common.NearCache;
+import org.wei.usercenterweb.common.PageCursor;
+import org.wei.usercenterweb.common.PasswordHasher;
+import org.wei.usercenterweb.common.ReferralListCache;
 import org.wei.usercenterweb.common.StatusCodeEnum;
 import org.wei.usercenterweb.common.UserCache;
+import org.wei.usercenterweb.common.UserRowCache;
+import org.wei.usercenterweb.common.UserTagIndex;
 import org.wei.usercenterweb.domain.User;
 import org.wei.usercenterweb.domain.request.GetReferralDataRequest;
 import org.wei.usercenterweb.domain.request.SearchUserByTagsRequest;
 import org.wei.usercenterweb.domain.request.SearchUsersRequest;
+import org.wei.usercenterweb.domain.response.CursorPage;
 import org.wei.usercenterweb.domain.response.UserInformation;
 import org.wei.usercenterweb.exception.CustomRuntimeExceptions;
 import org.wei.usercenterweb.mapper.UserMapper;
 import org.wei.usercenterweb.service.UserService;
-import org.wei.usercenterweb.utile.BCryptEncryption;
+import org.wei.usercenterweb.service.UserTagService;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.Serializable;
 import java.time.Duration;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static org.wei.usercenterweb.contains.UserConstants.AUTHORIZATION;
+import static org.wei.usercenterweb.contains.UserConstants.BEARER_PREFIX;
+import static org.wei.usercenterweb.contains.UserConstants.CURRENT_USER;
 import static org.wei.usercenterweb.contains.UserConstants.USER_INFORMATION;
-import static org.wei.usercenterweb.utile.BCryptEncryption.verifyPassword;
 
 /**
  * @author WeiWei
@@ -48,17 +58,60 @@ import static org.wei.usercenterweb.utile.BCryptEncryption.verifyPassword;
 @Slf4j
 public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         implements UserService {
+    /**
+     * 用户检索与推荐分页缓存的命名空间，用户数据变更后整体失效
+     */
+    private static final String USER_QUERY_NAMESPACE = "user:query";
+
+    private static final String SEARCH_BY_TAGS_KEY_PREFIX = "user:search:by:tag_";
+
+    private static final String REFERRAL_DATA_KEY_PREFIX = "user:referral:data:";
+
+    /**
+     * 推荐分页每页最多返回的数量
+     */
+    private static final int MAX_REFERRAL_PAGE_SIZE = 100;
 
     @Resource
     private UserCache userCache;
 
     @Resource
-    private RedissonClient redissonClient;
+    private ReferralListCache referralListCache;
+
+    @Resource
+    private NearCache nearCache;
+
+    @Resource
+    private UserTagService userTagService;
+
+    @Resource
+    private CountCache countCache;
+
+    @Resource
+    private AuthTokenManager authTokenManager;
+
+    @Resource
+    private UserRowCache userRowCache;
+
+    @Resource
+    private PasswordHasher passwordHasher;
+
+    /**
+     * 无筛选条件的用户列表是否返回估算总数
+     */
+    @Value("${user.count-cache.estimate-unfiltered:false}")
+    private boolean estimateUnfilteredCount;
+
+    /**
+     * 推荐分页缓存过期后仍可返回旧数据的时长（秒）
+     */
+    @Value("${user.referral.stale-seconds:60}")
+    private long referralStaleSeconds;
 
     @Override
     public boolean userRegister(String userCount, String userPassword, String userCheckPassword) {
         // 用户密码加密
-        String encryptPassword = BCryptEncryption.encryptPassword(userPassword);
+        String encryptPassword = passwordHasher.hash(userPassword);
         User user = new User();
         user.setUserCount(userCount);
         user.setUserPassword(encryptPassword);
@@ -72,11 +125,16 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST, "账号已存在！");
         }
 
-        return save(user);
+        boolean saved = save(user);
+        if (saved) {
+            countCache.invalidate(CountCache.USER);
+        }
+        return saved;
     }
 
     @Override
-    public UserInformation userLogin(String userCount, String userPassword, HttpServletRequest request) {
+    public UserInformation userLogin(String userCount, String userPassword, HttpServletRequest request,
+                                     HttpServletResponse response) {
         LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(User::getUserCount, userCount);
         User user = getOne(wrapper);
@@ -89,20 +147,72 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST, "账号已被封禁！");
         }
 
-        if (!verifyPassword(userPassword, user.getUserPassword())) {
+        if (!passwordHasher.verify("user:" + user.getUserId(), userPassword, user.getUserPassword())) {
             throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST, "密码错误！");
         }
+        rehashPassword(user, userPassword);
 
         // 生成脱敏后的数据
         UserInformation userInformation = new UserInformation();
         BeanUtils.copyProperties(user, userInformation);
 
-        // 在session中存储用户信息
-        request.getSession().setAttribute(USER_INFORMATION, userInformation);
+        if (authTokenManager.isTokenMode()) {
+            // 令牌登录方式不创建 session，令牌通过响应头返回
+            response.setHeader(AUTHORIZATION, BEARER_PREFIX + authTokenManager.issue(userInformation));
+        } else {
+            // 在session中存储用户信息
+            request.getSession().setAttribute(USER_INFORMATION, userInformation);
+        }
 
         return userInformation;
     }
 
+    /**
+     * 登录成功后将计算强度与配置不一致的密码重新加密，失败不影响登录
+     */
+    private void rehashPassword(User user, String userPassword) {
+        if (!passwordHasher.needsRehash(user.getUserPassword())) {
+            return;
+        }
+        try {
+            String rehashed = passwordHasher.hash(userPassword);
+            // 以旧哈希为条件更新，期间密码被修改时不覆盖
+            lambdaUpdate()
+                    .set(User::getUserPassword, rehashed)
+                    .eq(User::getUserId, user.getUserId())
+                    .eq(User::getUserPassword, user.getUserPassword())
+                    .update();
+            userRowCache.invalidate(user.getUserId());
+        } catch (Exception e) {
+            log.warn("密码重新加密失败，userId: {}", user.getUserId(), e);
+        }
+    }
+
+    @Override
+    public void userLogout(HttpServletRequest request) {
+        if (authTokenManager.isTokenMode()) {
+            authTokenManager.revoke(authTokenManager.authenticate(request).getUserId());
+            return;
+        }
+
+        Object user = request.getSession().getAttribute(USER_INFORMATION);
+        if (user == null) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "用户未登录！");
+        }
+        request.getSession().removeAttribute(USER_INFORMATION);
+    }
+
+    @Override
+    public UserInformation refreshToken(HttpServletRequest request, HttpServletResponse response) {
+        if (!authTokenManager.isTokenMode()) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST, "当前登录方式不支持续期令牌！");
+        }
+        // 以最新的用户数据签发，已注销或封禁的令牌在校验时即被拒绝
+        UserInformation user = tokenUser(request);
+        response.setHeader(AUTHORIZATION, BEARER_PREFIX + authTokenManager.issue(user));
+        return user;
+    }
+
     @Override
     public IPage<UserInformation> searchUsers(SearchUsersRequest request) {
         LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
@@ -115,10 +225,48 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (request.getEndTime() != null) {
             wrapper.lt(User::getCreateTime, request.getEndTime());
         }
-        IPage<User> page = page(new Page<>(request.getCurrent(), request.getPageSize()), wrapper);
 
-        // 进行数据的脱敏操作
-        return userInformationPage(page);
+        // 总数单独查询并缓存，分页查询本身不再执行 COUNT
+        boolean useCursor = request.getCursor() != null;
+        Page<User> page = new Page<>(useCursor ? 1 : request.getCurrent(), request.getPageSize(), false);
+        if (request.needCount()) {
+            page.setTotal(countSearchUsers(request, wrapper));
+        }
+        if (!useCursor) {
+            // 进行数据的脱敏操作
+            return userInformationPage(page(page, wrapper));
+        }
+
+        // 游标分页：按 (create_time, user_id) 倒序定位，每页只扫描 pageSize 行
+        PageCursor cursor = PageCursor.decode(request.getCursor());
+        if (cursor != null) {
+            wrapper.and(w -> w.lt(User::getCreateTime, cursor.getCreateTime())
+                    .or(o -> o.eq(User::getCreateTime, cursor.getCreateTime())
+                            .lt(User::getUserId, cursor.getId())));
+        }
+        wrapper.orderByDesc(User::getCreateTime)
+                .orderByDesc(User::getUserId);
+        page(page, wrapper);
+        return CursorPage.of(userInformationPage(page), nextCursor(page.getRecords(), request.getPageSize()));
+    }
+
+    /**
+     * 查询用户列表总数，无筛选条件时可返回表行数估算值
+     */
+    private long countSearchUsers(SearchUsersRequest request, LambdaQueryWrapper<User> wrapper) {
+        boolean unfiltered = request.getUserName() == null && request.getIsAdmin() == null
+                && request.getUserStatus() == null && request.getStartTime() == null && request.getEndTime() == null;
+        if (unfiltered && estimateUnfilteredCount) {
+            Long estimate = baseMapper.estimateRowCount();
+            if (estimate != null) {
+                return estimate;
+            }
+        }
+
+        String filterKey = String.format("search:name_%s:admin_%s:status_%s:from_%s:to_%s",
+                request.getUserName(), request.getIsAdmin(), request.getUserStatus(),
+                request.getStartTime(), request.getEndTime());
+        return countCache.count(CountCache.USER, filterKey, () -> count(wrapper));
     }
 
     @Override
@@ -129,7 +277,65 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             return false;
         }
 
-        return removeById(id);
+        boolean removed = removeById(id);
+        if (removed) {
+            authTokenManager.revoke(id);
+            evictUserRow(id);
+            evictUserQueryCaches();
+        }
+        return removed;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateById(User entity) {
+        boolean revoke = isStatusOrRoleChanged(entity);
+        boolean updated = super.updateById(entity);
+        if (updated) {
+            // 封禁或角色变更后已签发的令牌立即失效
+            if (revoke) {
+                authTokenManager.revoke(entity.getUserId());
+            }
+            // 标签字段有修改时同步维护用户标签关联
+            if (entity.getTags() != null) {
+                userTagService.syncUserTags(entity.getUserId(), entity.getTags());
+            }
+            evictUserRow(entity.getUserId());
+            evictUserQueryCaches();
+        }
+        return updated;
+    }
+
+    @Override
+    public User getById(Serializable id) {
+        return id == null ? null : userRowCache.get(id.toString(), super::getById);
+    }
+
+    /**
+     * 清除用户行缓存，当前请求中已解析的登录用户是该用户时一并清除
+     */
+    private void evictUserRow(String userId) {
+        userRowCache.invalidate(userId);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            Object current = attributes.getAttribute(CURRENT_USER, RequestAttributes.SCOPE_REQUEST);
+            if (current instanceof UserInformation && userId.equals(((UserInformation) current).getUserId())) {
+                attributes.removeAttribute(CURRENT_USER, RequestAttributes.SCOPE_REQUEST);
+            }
+        }
+    }
+
+    /**
+     * 账户状态或管理员标识是否发生变化，仅令牌登录方式下需要判断
+     */
+    private boolean isStatusOrRoleChanged(User entity) {
+        if (!authTokenManager.isTokenMode() || (entity.getUserStatus() == null && entity.getIsAdmin() == null)) {
+            return false;
+        }
+        User current = getById(entity.getUserId());
+        return current == null
+                || (entity.getUserStatus() != null && !entity.getUserStatus().equals(current.getUserStatus()))
+                || (entity.getIsAdmin() != null && !entity.getIsAdmin().equals(current.getIsAdmin()));
     }
 
     @Override
@@ -138,142 +344,193 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             return userInformationPage(new Page<>());
         }
 
-        String key = String.format("user:search:by:tag_%s:page_%d:%d",
-                request.getTags(), request.getCurrent(), request.getPageSize());
+        // 分页结果排除了当前用户、总数也按当前用户修正，key 中需要包含当前用户
+        String key = nearCache.versionedKey(USER_QUERY_NAMESPACE, String.format(
+                SEARCH_BY_TAGS_KEY_PREFIX + "%s:user_%s:page_%d:%d:cursor_%s:count_%b",
+                request.getTags(), currentUserId, request.getCurrent(), request.getPageSize(),
+                request.getCursor(), request.needCount()));
 
-        RBucket<Object> bucket = redissonClient.getBucket(key);
-        if (bucket.isExists()) {
-            return (IPage<UserInformation>) bucket.get();
+        IPage<UserInformation> cachedPage = nearCache.get(key);
+        if (cachedPage != null) {
+            return cachedPage;
         }
 
-        // 构建数据库查询条件
-        QueryWrapper<User> wrapper = new QueryWrapper<>();
-        wrapper.ne("user_id", currentUserId)
-                .eq("user_status", 0);
-
-        // 添加标签筛选条件
-        for (String tag : request.getTags()) {
-            wrapper.apply("JSON_CONTAINS(tags, {0})", "\"" + tag + "\"");
+        // 通过 user_tag 关联表按标签索引求交集，任一标签不存在时结果必然为空
+        Set<String> tagNames = new HashSet<>(request.getTags());
+        List<Long> tagIds = userTagService.getTagIds(tagNames);
+        boolean useCursor = request.getCursor() != null;
+        PageCursor cursor = PageCursor.decode(request.getCursor());
+        Page<User> resultPage = new Page<>(useCursor ? 1 : request.getCurrent(), request.getPageSize(), false);
+        if (tagIds.size() == tagNames.size()) {
+            if (request.needCount()) {
+                resultPage.setTotal(countUsersByTags(currentUserId, tagNames, tagIds));
+            }
+            baseMapper.selectPageByTagIds(resultPage, tagIds, tagIds.size(), currentUserId, cursor);
         }
 
-        // 分页查询
-        Page<User> page = new Page<>(request.getCurrent(), request.getPageSize());
-        Page<User> resultPage = page(page, wrapper);
-
         IPage<UserInformation> userInformationPage = userInformationPage(resultPage);
-        bucket.set(userInformationPage, Duration.ofMinutes(30));
+        if (useCursor) {
+            userInformationPage = CursorPage.of(userInformationPage,
+                    nextCursor(resultPage.getRecords(), request.getPageSize()));
+        }
+        nearCache.put(key, userInformationPage, Duration.ofMinutes(30));
         return userInformationPage;
     }
 
+    /**
+     * 查询同时拥有全部标签的用户总数
+     * <p>
+     * 总数按标签缓存、所有用户共用，当前用户自身满足条件时再减去 1
+     */
+    private long countUsersByTags(String currentUserId, Set<String> tagNames, List<Long> tagIds) {
+        String filterKey = "tags:" + tagIds.stream().sorted().map(String::valueOf).collect(Collectors.joining(","));
+        long total = countCache.count(CountCache.USER, filterKey,
+                () -> baseMapper.countByTagIds(tagIds, tagIds.size()));
+        return getUserTags(currentUserId).containsAll(tagNames) ? Math.max(total - 1, 0) : total;
+    }
+
     @Override
     public IPage<UserInformation> getReferralData(GetReferralDataRequest request, String currentUserId) {
-        String key = generateCacheKey(currentUserId, request);
-        RBucket<IPage<UserInformation>> bucket = redissonClient.getBucket(key);
-        IPage<UserInformation> cachedPage = bucket.get();
+        // 接口不要求登录，页码与每页数量决定打分时的堆容量，先校验再计算
+        checkReferralPage(request);
 
-        if (cachedPage != null) {
-            return cachedPage;
+        // 有标签的登录用户直接读取预先计算的推荐列表
+        Set<String> currentUserTags = getUserTags(currentUserId);
+        if (!currentUserTags.isEmpty()) {
+            return getPersonalReferralData(request, currentUserId, currentUserTags);
         }
 
-        RLock lock = redissonClient.getLock(key + "_");
-        try {
-            if (lock.tryLock(5, 30, TimeUnit.SECONDS)) {
-                try {
-                    ObjectMapper objectMapper = new ObjectMapper();
-
-                    // 创建分页对象
-                    Page<User> page = new Page<>(request.getCurrent(), request.getPageSize());
-
-                    // 获取当前用户信息
-                    User currentUser = null;
-                    if (StringUtils.isNotBlank(currentUserId)) {
-                        currentUser = this.getById(currentUserId);
-                    }
-
-                    // 获取所有用户
-                    List<User> allUsers = userCache.getUserNotIdList(currentUserId);
-
-                    // 计算用户相似度并排序
-                    if (currentUser != null && StringUtils.isNotBlank(currentUser.getTags())) {
-                        try {
-                            // 解析当前用户的标签
-                            List<String> currentUserTags = objectMapper.readValue(currentUser.getTags(), new TypeReference<List<String>>() {
-                            });
-
-                            // 计算每个用户与当前用户的相似度
-                            allUsers = allUsers.stream()
-                                    .filter(user -> StringUtils.isNotBlank(user.getTags()))
-                                    .map(user -> {
-                                        try {
-                                            List<String> userTags = objectMapper.readValue(user.getTags(), new TypeReference<List<String>>() {
-                                            });
-                                            double similarity = calculateJaccardSimilarity(currentUserTags, userTags);
-                                            user.setSimilarity(similarity);
-                                            return user;
-                                        } catch (Exception e) {
-                                            user.setSimilarity(0.0);
-                                            return user;
-                                        }
-                                    })
-                                    .sorted(Comparator.comparing(User::getSimilarity).reversed())
-                                    .collect(Collectors.toList());
-                        } catch (Exception e) {
-                            // 如果解析标签失败，按创建时间倒序排序
-                            allUsers.sort(Comparator.comparing(User::getCreateTime).reversed());
-                        }
-                    } else {
-                        // 如果没有当前用户或标签，按创建时间倒序排序
-                        allUsers.sort(Comparator.comparing(user -> user.getCreateTime() == null ? "0" : user.getCreateTime(), Comparator.reverseOrder()));
-                    }
-
-                    // 设置分页结果
-                    int start = (int) ((page.getCurrent() - 1) * page.getSize());
-                    int end = Math.min(start + (int) page.getSize(), allUsers.size());
-                    List<User> pageRecords = allUsers.subList(start, end);
-
-                    page.setRecords(pageRecords);
-                    page.setTotal(allUsers.size());
-
-                    IPage<UserInformation> userInformationPage = userInformationPage(page);
-                    bucket.set(userInformationPage, Duration.ofMinutes(5));
-                    return userInformationPage;
-                } finally {
-                    lock.unlock();
-                }
-            } else {
-                log.warn("未能获取锁，key: {}", key);
-                return new Page<>();
+        // 同一个 key 在本节点只计算一次，过期后先返回旧数据再后台刷新
+        String key = generateCacheKey(currentUserId, request);
+        return nearCache.getOrLoad(key, Duration.ofMinutes(5), Duration.ofSeconds(referralStaleSeconds), () -> {
+            // 创建分页对象
+            Page<UserInformation> page = new Page<>(request.getCurrent(), request.getPageSize());
+            page.setTotal(userCache.countUsers(currentUserId));
+            long start = (page.getCurrent() - 1) * page.getSize();
+            if (start >= userCache.size()) {
+                return page;
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("加锁中断", e);
-        } catch (Exception e) {
-            log.error("处理请求失败", e);
-            throw new RuntimeException("系统异常", e);
-        }
+
+            // 如果没有当前用户或标签，按创建时间倒序排序，只物化当前页的数据
+            page.setRecords(userCache.getLatestUsers(currentUserId, (int) start, (int) page.getSize()));
+            return page;
+        });
     }
 
-    private double calculateJaccardSimilarity(List<String> set1, List<String> set2) {
-        Set<String> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
+    /**
+     * 按标签相似度分页获取推荐用户
+     * <p>
+     * 预计算范围内的分页直接按名次区间读取推荐列表，列表不存在时计算一次并保存；
+     * 超出预计算范围的分页实时计算
+     */
+    private IPage<UserInformation> getPersonalReferralData(GetReferralDataRequest request, String currentUserId,
+                                                           Set<String> currentUserTags) {
+        Page<UserInformation> page = new Page<>(request.getCurrent(), request.getPageSize());
+        page.setTotal(userCache.countTaggedUsers(currentUserId));
+        long offset = (page.getCurrent() - 1) * page.getSize();
+        if (offset >= userCache.size()) {
+            return page;
+        }
+        int start = (int) offset;
+        int size = (int) page.getSize();
+
+        List<UserInformation> records;
+        if (offset + size <= referralListCache.getListSize()) {
+            referralListCache.markActive(currentUserId);
+            records = referralListCache.getPage(currentUserId, currentUserTags, start, size);
+            if (records == null) {
+                records = referralListCache.buildAndGetPage(currentUserId, currentUserTags, start, size);
+            }
+        } else {
+            records = userCache.getSimilarUsers(currentUserTags, currentUserId, start, size);
+        }
 
-        Set<String> union = new HashSet<>(set1);
-        union.addAll(set2);
+        page.setRecords(records);
+        return page;
+    }
 
-        return intersection.size() / (double) union.size();
+    /**
+     * 校验推荐分页参数：页码从 1 开始，每页 1 到 100 条
+     */
+    private static void checkReferralPage(GetReferralDataRequest request) {
+        Integer current = request.getCurrent();
+        if (current == null || current < 1) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST, "页码必须大于 0！");
+        }
+        Integer pageSize = request.getPageSize();
+        if (pageSize == null || pageSize < 1 || pageSize > MAX_REFERRAL_PAGE_SIZE) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.BAD_REQUEST,
+                    "每页数量必须在 1 到 " + MAX_REFERRAL_PAGE_SIZE + " 之间！");
+        }
+    }
+
+    /**
+     * 获取用户标签，优先读取本地缓存
+     *
+     * @param userId 用户id
+     * @return 用户标签，未登录或没有标签时为空
+     */
+    private Set<String> getUserTags(String userId) {
+        if (StringUtils.isBlank(userId)) {
+            return Collections.emptySet();
+        }
+        UserInformation cachedUser = userCache.getUserById(userId);
+        if (cachedUser != null) {
+            return UserTagIndex.parseTags(cachedUser.getTags());
+        }
+        User user = this.getById(userId);
+        return user == null ? Collections.emptySet() : UserTagIndex.parseTags(user.getTags());
     }
 
     @Override
     public UserInformation permissionVerification(HttpServletRequest request) {
-        UserInformation user = (UserInformation) request.getSession().getAttribute(USER_INFORMATION);
-        if (user == null) {
+        // 同一个请求内只解析一次登录用户
+        UserInformation current = (UserInformation) request.getAttribute(CURRENT_USER);
+        if (current != null) {
+            return current;
+        }
+
+        UserInformation user = authTokenManager.isTokenMode() ? tokenUser(request) : sessionUser(request);
+        request.setAttribute(CURRENT_USER, user);
+        return user;
+    }
+
+    /**
+     * 会话登录方式：以会话中的用户为准，按主键读取最新数据，数据有变化时才写回会话
+     */
+    private UserInformation sessionUser(HttpServletRequest request) {
+        UserInformation sessionUser = (UserInformation) request.getSession().getAttribute(USER_INFORMATION);
+        if (sessionUser == null) {
             throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "用户未登录！");
         }
         // 跟新为最新的数据
-        User searchUser = getById(user.getUserId());
+        User searchUser = getById(sessionUser.getUserId());
+        if (searchUser == null) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "用户不存在！");
+        }
+        UserInformation user = new UserInformation();
+        BeanUtils.copyProperties(sessionUser, user);
         BeanUtils.copyProperties(searchUser, user);
-        request.getSession().setAttribute(USER_INFORMATION, user);
+        if (!user.equals(sessionUser)) {
+            request.getSession().setAttribute(USER_INFORMATION, user);
+        }
+        return user;
+    }
 
+    /**
+     * 令牌登录方式：校验令牌后按主键读取完整的用户数据（经过用户行缓存），与会话登录方式返回的数据一致
+     */
+    private UserInformation tokenUser(HttpServletRequest request) {
+        UserInformation claims = authTokenManager.authenticate(request);
+        User searchUser = getById(claims.getUserId());
+        if (searchUser == null) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "用户不存在！");
+        }
+        if (Integer.valueOf(1).equals(searchUser.getUserStatus())) {
+            throw new CustomRuntimeExceptions(StatusCodeEnum.UNAUTHORIZED, "账号已被封禁！");
+        }
+        UserInformation user = new UserInformation();
+        BeanUtils.copyProperties(searchUser, user);
         return user;
     }
 
@@ -287,15 +544,34 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         }
     }
 
+    /**
+     * 生成下一页游标，本页不足一页时说明没有更多数据
+     */
+    private static String nextCursor(List<User> records, int pageSize) {
+        if (records.size() < pageSize) {
+            return null;
+        }
+        User last = records.get(records.size() - 1);
+        return PageCursor.encode(last.getCreateTime(), last.getUserId());
+    }
+
+    /**
+     * 用户数据变更后清除检索与推荐的分页缓存，事务提交后只需递增一次命名空间代数
+     */
+    private void evictUserQueryCaches() {
+        countCache.invalidate(CountCache.USER);
+        nearCache.invalidateNamespace(USER_QUERY_NAMESPACE);
+    }
+
     private String generateCacheKey(String userId, GetReferralDataRequest request) {
-        int current = Math.max(request.getCurrent(), 1);
-        int pageSize = Math.min(request.getPageSize(), 100);
+        int current = request.getCurrent();
+        int pageSize = request.getPageSize();
         String sanitizedTags = request.getTags() == null ? "" :
                 request.getTags().stream()
                         .sorted()
                         .collect(Collectors.joining(","));
-        return String.format("user:referral:data:%s:page_%d:%d:tags_%s",
-                userId, current, pageSize, sanitizedTags);
+        return nearCache.versionedKey(USER_QUERY_NAMESPACE, String.format(
+                REFERRAL_DATA_KEY_PREFIX + "%s:page_%d:%d:tags_%s", userId, current, pageSize, sanitizedTags));
     }
 
 
@@ -317,8 +593,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 
         return objectPage;
     }
-}
-
-
-
 
+    @Override
+    public List<User> listChangedSince(String since, int overlapSeconds) {
+        return baseMapper.selectChangedSince(since, overlapSeconds);
+    }
+}
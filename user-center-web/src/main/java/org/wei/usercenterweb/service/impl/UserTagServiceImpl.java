@@ -0,0 +1,98 @@
+package org.wei.usercenterweb.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wei.usercenterweb.common.UserTagIndex;
+import org.wei.usercenterweb.domain.Tag;
+import org.wei.usercenterweb.domain.User;
+import org.wei.usercenterweb.domain.UserTag;
+import org.wei.usercenterweb.mapper.TagMapper;
+import org.wei.usercenterweb.mapper.UserMapper;
+import org.wei.usercenterweb.mapper.UserTagMapper;
+import org.wei.usercenterweb.service.UserTagService;
+
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * @author WeiWei
+ * @description 针对表【user_tag】的数据库操作Service实现
+ * @version V5.0.0
+ * @date 2025/3/28
+ */
+@Slf4j
+@Service
+public class UserTagServiceImpl extends ServiceImpl<UserTagMapper, UserTag>
+        implements UserTagService {
+
+    @Resource
+    private TagMapper tagMapper;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void syncUserTags(String userId, String tags) {
+        remove(new LambdaQueryWrapper<UserTag>().eq(UserTag::getUserId, userId));
+
+        Set<String> tagNames = UserTagIndex.parseTags(tags);
+        if (tagNames.isEmpty()) {
+            return;
+        }
+        tagMapper.insertIgnore(tagNames);
+        baseMapper.insertBatch(userId, getTagIds(tagNames));
+    }
+
+    @Override
+    public List<Long> getTagIds(Collection<String> tagNames) {
+        if (tagNames == null || tagNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LambdaQueryWrapper<Tag> wrapper = new LambdaQueryWrapper<>();
+        wrapper.select(Tag::getTagId)
+                .in(Tag::getTagName, tagNames);
+        return tagMapper.selectList(wrapper).stream()
+                .map(Tag::getTagId)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long backfill(int batchSize) {
+        long processed = 0;
+        String lastUserId = "";
+        while (true) {
+            // 按主键游标分批读取，避免深分页
+            LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
+            wrapper.select(User::getUserId, User::getTags)
+                    .gt(User::getUserId, lastUserId)
+                    .orderByAsc(User::getUserId)
+                    .last("limit " + batchSize);
+            List<User> users = userMapper.selectList(wrapper);
+            if (users.isEmpty()) {
+                return processed;
+            }
+
+            // 内部调用不经过代理，@Transactional 不生效，每批在一个事务中完成先删后插
+            transactionTemplate.executeWithoutResult(status -> {
+                for (User user : users) {
+                    syncUserTags(user.getUserId(), user.getTags());
+                }
+            });
+            processed += users.size();
+            lastUserId = users.get(users.size() - 1).getUserId();
+            log.info("用户标签关联补全进度：{}", processed);
+        }
+    }
+}
@@ -20,7 +20,13 @@ public class AccountValidatorUtil {
         if (account == null || account.length() < 6 || account.length() > 20) {
             return false;
         }
-        return account.matches("^[a-zA-Z0-9]+$");
+        // 单次遍历字符，不再每次调用都编译正则
+        for (int i = 0; i < account.length(); i++) {
+            if (!isLetterOrDigit(account.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -35,6 +41,29 @@ public class AccountValidatorUtil {
         if (password == null || password.length() < 8 || password.length() > 20) {
             return false;
         }
-        return password.matches("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).+$");
+        boolean hasLower = false;
+        boolean hasUpper = false;
+        boolean hasDigit = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (isLineTerminator(c)) {
+                return false;
+            }
+            hasLower |= c >= 'a' && c <= 'z';
+            hasUpper |= c >= 'A' && c <= 'Z';
+            hasDigit |= c >= '0' && c <= '9';
+        }
+        return hasLower && hasUpper && hasDigit;
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * 与正则中 {@code .} 不匹配的字符保持一致
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 }
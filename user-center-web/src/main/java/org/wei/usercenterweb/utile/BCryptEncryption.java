@@ -12,6 +12,16 @@ public class BCryptEncryption {
         return BCrypt.hashpw(plainPassword, BCrypt.gensalt());
     }
 
+    /**
+     * 按指定计算强度对密码进行加密
+     * @param plainPassword 明文密码
+     * @param cost 计算强度（4 ~ 31），每加一计算时间翻倍
+     * @return 加密后的密码
+     */
+    public static String encryptPassword(String plainPassword, int cost) {
+        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(cost));
+    }
+
     /**
      * 验证密码是否匹配
      * @param plainPassword 明文密码
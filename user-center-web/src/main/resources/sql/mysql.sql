@@ -50,9 +50,36 @@ create table user_center.user
 create index user_is_delete_index
     on user_center.user (is_delete);
 
-create index user_tags_index
-    on user_center.user (tags);
-
 create index user_user_status_index
     on user_center.user (user_status);
 
+create index user_update_time_index
+    on user_center.user (update_time);
+
+create table user_center.tag
+(
+    tag_id   bigint auto_increment comment '标签ID'
+        primary key,
+    tag_name varchar(126) not null comment '标签名称',
+    constraint tag_name_index
+        unique (tag_name)
+) comment '标签表';
+
+create table user_center.user_tag
+(
+    user_id varchar(252) not null comment '用户ID',
+    tag_id  bigint       not null comment '标签ID',
+    primary key (tag_id, user_id)
+) comment '用户标签关联表';
+
+create index user_tag_user_id_index
+    on user_center.user_tag (user_id);
+
+create index user_create_time_index
+    on user_center.user (create_time, user_id);
+
+create index team_create_time_index
+    on user_center.team (create_time, id);
+
+create index team_status_expire_time_index
+    on user_center.team (status, expire_time);
@@ -0,0 +1,68 @@
+package org.wei.usercenterweb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wei.usercenterweb.utile.AccountValidatorUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 对比 String.matches、预编译正则与逐字符扫描三种账号密码校验方式的单次调用耗时
+ * <p>
+ * 运行方式：执行 main 方法，或 mvn test-compile 后以 org.openjdk.jmh.Main 启动
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/29
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountValidatorBenchmark {
+    private static final Pattern ACCOUNT_PATTERN = Pattern.compile("^[a-zA-Z0-9]+$");
+
+    private static final Pattern PASSWORD_PATTERN = Pattern.compile("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).+$");
+
+    private final String account = "weiwei2025";
+
+    private final String password = "Passw0rdExample";
+
+    @Benchmark
+    public void stringMatches(Blackhole blackhole) {
+        blackhole.consume(account.matches("^[a-zA-Z0-9]+$"));
+        blackhole.consume(password.matches("^(?=.*[a-z])(?=.*[A-Z])(?=.*\\d).+$"));
+    }
+
+    @Benchmark
+    public void precompiledPattern(Blackhole blackhole) {
+        blackhole.consume(ACCOUNT_PATTERN.matcher(account).matches());
+        blackhole.consume(PASSWORD_PATTERN.matcher(password).matches());
+    }
+
+    @Benchmark
+    public void charScanner(Blackhole blackhole) {
+        blackhole.consume(AccountValidatorUtil.validateAccount(account));
+        blackhole.consume(AccountValidatorUtil.validateAccountAndPassword(password));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountValidatorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,159 @@
+package org.wei.usercenterweb.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wei.usercenterweb.common.ReferralScoringEngine;
+import org.wei.usercenterweb.common.UserCache;
+import org.wei.usercenterweb.domain.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 对比读写锁缓存与快照缓存在并发刷新时的读吞吐量
+ * <p>
+ * 运行方式：执行 main 方法，或 mvn test-compile 后以 org.openjdk.jmh.Main 启动
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/26
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserCacheBenchmark {
+    private static final List<String> SKILLS = Arrays.asList("java", "python", "大数据", "机器学习", "前端开发", "后端开发", "算法");
+
+    @Param({"30000"})
+    private int userCount;
+
+    private List<User> users;
+
+    private String[] ids;
+
+    private LockingUserCache lockingCache;
+
+    private UserCache snapshotCache;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        users = new ArrayList<>(userCount);
+        ids = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            User user = new User();
+            user.setUserId("user-" + i);
+            user.setUserName("用户" + i);
+            user.setTags("[\"" + SKILLS.get(random.nextInt(SKILLS.size())) + "\",\""
+                    + SKILLS.get(random.nextInt(SKILLS.size())) + "\"]");
+            users.add(user);
+            ids[i] = user.getUserId();
+        }
+
+        lockingCache = new LockingUserCache();
+        lockingCache.refreshCache(users);
+        snapshotCache = new UserCache();
+        ReflectionTestUtils.setField(snapshotCache, "scoringEngine", singleThreadedEngine());
+        snapshotCache.refreshCache(users);
+    }
+
+    /**
+     * 并行阈值设为最大值，始终在调用线程打分
+     */
+    private static ReferralScoringEngine singleThreadedEngine() {
+        ReferralScoringEngine engine = new ReferralScoringEngine();
+        ReflectionTestUtils.setField(engine, "referralScoringPool", ForkJoinPool.commonPool());
+        ReflectionTestUtils.setField(engine, "chunkSize", 4096);
+        ReflectionTestUtils.setField(engine, "parallelThreshold", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(engine, "maxQueuedSubmissions", 64);
+        return engine;
+    }
+
+    @Benchmark
+    @Group("locking")
+    @GroupThreads(3)
+    public Object lockingRead() {
+        return lockingCache.getUserById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @Group("locking")
+    @GroupThreads(1)
+    public void lockingRefresh() {
+        lockingCache.refreshCache(users);
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public Object snapshotRead() {
+        return snapshotCache.getUserById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public void snapshotRefresh() {
+        snapshotCache.refreshCache(users);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /**
+     * 原先基于读写锁的实现，作为对照组
+     */
+    static class LockingUserCache {
+        private final Map<String, User> userMap = new ConcurrentHashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void refreshCache(List<User> users) {
+            lock.writeLock().lock();
+            try {
+                userMap.clear();
+                users.forEach(u -> userMap.put(u.getUserId(), u));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        User getUserById(String id) {
+            lock.readLock().lock();
+            try {
+                return userMap.get(id);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.wei.usercenterweb.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 前 k 个小顶堆
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+class TopKHeapTest {
+
+    @Test
+    void drainsHighestScoresInDescendingOrder() {
+        TopKHeap heap = new TopKHeap(3);
+        heap.offer(0.2, 0);
+        heap.offer(0.9, 1);
+        heap.offer(0.5, 2);
+        heap.offer(0.1, 3);
+        heap.offer(0.7, 4);
+
+        assertEquals(3, heap.size());
+        assertArrayEquals(new int[]{1, 4, 2}, heap.drainDescending());
+        assertEquals(0, heap.size());
+    }
+
+    @Test
+    void equalScoresPreferSmallerOrdinal() {
+        TopKHeap heap = new TopKHeap(3);
+        // 逆序插入，结果仍按序号升序
+        for (int ordinal = 9; ordinal >= 0; ordinal--) {
+            heap.offer(1.0, ordinal);
+        }
+        assertArrayEquals(new int[]{0, 1, 2}, heap.drainDescending());
+    }
+
+    @Test
+    void matchesStableSortOfRandomScores() {
+        Random random = new Random(7);
+        double[] scores = new double[2000];
+        for (int i = 0; i < scores.length; i++) {
+            // 分数取值较少，制造大量并列
+            scores[i] = random.nextInt(10) / 10.0;
+        }
+
+        TopKHeap heap = new TopKHeap(50);
+        for (int i = 0; i < scores.length; i++) {
+            heap.offer(scores[i], i);
+        }
+
+        int[] expected = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> scores[i]).reversed())
+                .limit(50)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertArrayEquals(expected, heap.drainDescending());
+    }
+
+    @Test
+    void mergeEqualsSingleHeap() {
+        Random random = new Random(11);
+        TopKHeap single = new TopKHeap(20);
+        TopKHeap left = new TopKHeap(20);
+        TopKHeap right = new TopKHeap(20);
+        for (int i = 0; i < 500; i++) {
+            double score = random.nextInt(20);
+            single.offer(score, i);
+            (i < 250 ? left : right).offer(score, i);
+        }
+        left.merge(right);
+
+        assertArrayEquals(single.drainDescending(), left.drainDescending());
+    }
+
+    @Test
+    void zeroCapacityKeepsNothing() {
+        TopKHeap heap = new TopKHeap(0);
+        heap.offer(1.0, 0);
+        assertEquals(0, heap.drainDescending().length);
+    }
+}
@@ -0,0 +1,179 @@
+package org.wei.usercenterweb.common;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wei.usercenterweb.domain.User;
+import org.wei.usercenterweb.domain.response.UserInformation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用户缓存：用户id查找、增量更新与推荐排除当前用户
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+class UserCacheTest {
+    private ForkJoinPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void idLookupsFollowApplyDelta() {
+        UserCache cache = cache(Integer.MAX_VALUE);
+        cache.refreshCache(Arrays.asList(
+                user("u1", "[\"java\"]", "2025-03-01 10:00:00"),
+                user("u2", "[\"go\"]", "2025-03-02 10:00:00"),
+                user("u3", null, "2025-03-03 10:00:00")));
+
+        User renamed = user("u2", "[\"java\",\"go\"]", "2025-03-02 10:00:00");
+        renamed.setUserName("新名字");
+        int changed = cache.applyDelta(
+                Arrays.asList(renamed, user("u4", "[\"java\"]", "2025-03-04 10:00:00")),
+                Collections.singletonList("u1"));
+
+        assertEquals(3, changed);
+        assertNull(cache.getUserById("u1"));
+        assertEquals("新名字", cache.getUserById("u2").getUserName());
+        assertEquals("[\"java\",\"go\"]", cache.getUserById("u2").getTags());
+        assertEquals("u3", cache.getUserById("u3").getUserId());
+        assertEquals("u4", cache.getUserById("u4").getUserId());
+        assertNull(cache.getUserById("missing"));
+        assertEquals(3, cache.countUsers(null));
+        assertEquals(2, cache.countUsers("u4"));
+        assertEquals(1, cache.countTaggedUsers("u2"));
+    }
+
+    @Test
+    void idLookupsSurviveManyDeltas() {
+        UserCache cache = cache(Integer.MAX_VALUE);
+        cache.refreshCache(Collections.emptyList());
+        for (int i = 0; i < 200; i++) {
+            cache.applyDelta(Collections.singletonList(user("u" + i, "[\"java\"]", null)),
+                    i % 3 == 0 && i > 0 ? Collections.singletonList("u" + (i - 1)) : Collections.emptyList());
+        }
+
+        for (int i = 0; i < 200; i++) {
+            boolean removed = (i + 1) % 3 == 0 && i < 199;
+            UserInformation information = cache.getUserById("u" + i);
+            assertEquals(removed, information == null, "u" + i);
+        }
+    }
+
+    @Test
+    void unchangedDeltaKeepsDirectory() {
+        UserCache cache = cache(Integer.MAX_VALUE);
+        User u1 = user("u1", "[\"java\"]", "2025-03-01 10:00:00");
+        cache.refreshCache(Arrays.asList(u1, user("u2", null, "2025-03-02 10:00:00")));
+        Object before = ReflectionTestUtils.getField(cache, "directory");
+
+        // 回溯窗口内重复查出的数据、缓存中不存在的失效用户都不算变更
+        assertEquals(0, cache.applyDelta(Arrays.asList(u1, user("u2", null, "2025-03-02 10:00:00")),
+                Collections.singletonList("u9")));
+        assertSame(before, ReflectionTestUtils.getField(cache, "directory"));
+
+        assertEquals(1, cache.applyDelta(Collections.singletonList(user("u2", "[\"go\"]", "2025-03-02 10:00:00")),
+                Collections.emptyList()));
+        assertNotSame(before, ReflectionTestUtils.getField(cache, "directory"));
+    }
+
+    @Test
+    void similarUsersExcludeCurrentUser() {
+        assertSimilarUsersExcludeCurrentUser(cache(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void parallelScoringExcludesCurrentUser() {
+        assertSimilarUsersExcludeCurrentUser(cache(1));
+    }
+
+    @Test
+    void latestUsersExcludeCurrentUser() {
+        UserCache cache = cache(Integer.MAX_VALUE);
+        cache.refreshCache(Arrays.asList(
+                user("u1", null, "2025-03-01 10:00:00"),
+                user("u2", null, "2025-03-03 10:00:00"),
+                user("u3", null, "2025-03-02 10:00:00")));
+
+        assertEquals(Arrays.asList("u3", "u1"), ids(cache.getLatestUsers("u2", 0, 10)));
+        assertEquals(Collections.singletonList("u1"), ids(cache.getLatestUsers("u2", 1, 10)));
+    }
+
+    @Test
+    void outOfRangePagesAreEmpty() {
+        UserCache cache = cache(Integer.MAX_VALUE);
+        cache.refreshCache(Arrays.asList(
+                user("u1", "[\"java\"]", "2025-03-01 10:00:00"),
+                user("u2", "[\"java\"]", "2025-03-02 10:00:00")));
+
+        // 页码很大时 offset + limit 会溢出，不能按调用方传入的数量分配堆
+        assertTrue(cache.getLatestUsers(null, Integer.MAX_VALUE - 5, 100).isEmpty());
+        assertTrue(cache.getLatestUsers(null, -10, 100).isEmpty());
+        assertTrue(cache.getSimilarUsers(Collections.singletonList("java"), null, Integer.MAX_VALUE - 5, 100).isEmpty());
+        assertTrue(cache.getSimilarUsers(Collections.singletonList("java"), null, -10, 100).isEmpty());
+        assertEquals(Arrays.asList("u2", "u1"), ids(cache.getLatestUsers(null, 0, Integer.MAX_VALUE)));
+    }
+
+    private static void assertSimilarUsersExcludeCurrentUser(UserCache cache) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(user("u" + i, i % 2 == 0 ? "[\"java\",\"go\"]" : "[\"python\"]", null));
+        }
+        cache.refreshCache(users);
+
+        List<String> similar = ids(cache.getSimilarUsers(Arrays.asList("java", "go"), "u0", 0, 60));
+        assertEquals(60, similar.size());
+        assertFalse(similar.contains("u0"));
+        // 相似度相同的用户按序号排列，相同标签的 49 个用户排在前面
+        assertEquals("u2", similar.get(0));
+        assertEquals("u98", similar.get(48));
+        assertEquals("u1", similar.get(49));
+        assertEquals(similar.subList(0, 10),
+                cache.getSimilarUserIds(Arrays.asList("java", "go"), "u0", 10));
+    }
+
+    private UserCache cache(int parallelThreshold) {
+        pool = new ForkJoinPool(2);
+        ReferralScoringEngine engine = new ReferralScoringEngine();
+        ReflectionTestUtils.setField(engine, "referralScoringPool", pool);
+        ReflectionTestUtils.setField(engine, "chunkSize", 16);
+        ReflectionTestUtils.setField(engine, "parallelThreshold", parallelThreshold);
+        ReflectionTestUtils.setField(engine, "maxQueuedSubmissions", 64);
+
+        UserCache cache = new UserCache();
+        ReflectionTestUtils.setField(cache, "scoringEngine", engine);
+        return cache;
+    }
+
+    private static User user(String userId, String tags, String createTime) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setUserName("用户" + userId);
+        user.setTags(tags);
+        user.setCreateTime(createTime);
+        return user;
+    }
+
+    private static List<String> ids(List<UserInformation> users) {
+        return users.stream().map(UserInformation::getUserId).collect(Collectors.toList());
+    }
+}
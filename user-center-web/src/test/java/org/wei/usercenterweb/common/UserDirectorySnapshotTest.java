@@ -0,0 +1,136 @@
+package org.wei.usercenterweb.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wei.usercenterweb.domain.User;
+import org.wei.usercenterweb.domain.response.UserInformation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用户目录二进制快照编解码
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/29
+ */
+class UserDirectorySnapshotTest {
+    private static final List<String> TAGS = Arrays.asList("[\"java\",\"python\"]", "[\"男\",\"大一\"]", null);
+
+    @Test
+    void roundTripKeepsEveryColumnAndOrdinal() throws IOException {
+        List<User> users = users(50);
+        users.get(3).setUserDescription(null);
+        users.get(4).setImageUrl(null);
+        users.get(5).setCreateTime(null);
+
+        byte[] data = UserDirectorySnapshot.encode(42L, users, "2025-03-28 11:00:00");
+        UserDirectorySnapshot snapshot = UserDirectorySnapshot.decode(ByteBuffer.wrap(data), false);
+
+        assertEquals(42L, snapshot.getVersion());
+        assertEquals("2025-03-28 11:00:00", snapshot.getWatermark());
+        assertDirectory(users, snapshot.getDirectory());
+    }
+
+    @Test
+    void largeStringTableUsesMultiByteReferences() throws IOException {
+        // 每个用户 4 个不重复的字符串，序号超过 16383，需要 3 字节变长整数
+        List<User> users = users(5000);
+
+        byte[] data = UserDirectorySnapshot.encode(7L, users, null);
+        UserDirectorySnapshot snapshot = UserDirectorySnapshot.decode(ByteBuffer.wrap(data), true);
+
+        assertNull(snapshot.getWatermark());
+        assertDirectory(users, snapshot.getDirectory());
+    }
+
+    @Test
+    void repeatedStringsAreStoredOnce() {
+        List<User> distinct = users(2000);
+        List<User> repeated = users(2000);
+        repeated.forEach(user -> user.setUserDescription("热爱编程，喜欢探索新技术。每天进步一点点，未来会更好。"));
+
+        int distinctSize = UserDirectorySnapshot.encode(1L, distinct, null).length;
+        int repeatedSize = UserDirectorySnapshot.encode(1L, repeated, null).length;
+        assertTrue(repeatedSize < distinctSize, repeatedSize + " >= " + distinctSize);
+    }
+
+    @Test
+    void decodesMemoryMappedFile(@TempDir Path dir) throws IOException {
+        List<User> users = users(100);
+        Path file = dir.resolve("user-directory.snapshot");
+        Files.write(file, UserDirectorySnapshot.encode(9L, users, "2025-03-28 11:00:00"));
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            assertEquals(9L, UserDirectorySnapshot.peekVersion(buffer));
+            assertDirectory(users, UserDirectorySnapshot.decode(buffer, false).getDirectory());
+        }
+    }
+
+    @Test
+    void rejectsUnknownFormatVersion() {
+        byte[] data = UserDirectorySnapshot.encode(3L, users(10), null);
+        // 魔数之后的 1 个字节为格式版本
+        data[4] = 2;
+
+        assertEquals(-1L, UserDirectorySnapshot.peekVersion(ByteBuffer.wrap(data)));
+        assertThrows(IOException.class, () -> UserDirectorySnapshot.decode(ByteBuffer.wrap(data), false));
+    }
+
+    @Test
+    void rejectsUnknownMagicAndCorruptBody() {
+        byte[] data = UserDirectorySnapshot.encode(3L, users(10), null);
+
+        byte[] badMagic = data.clone();
+        badMagic[0] = 0;
+        assertThrows(IOException.class, () -> UserDirectorySnapshot.decode(ByteBuffer.wrap(badMagic), false));
+
+        byte[] truncated = Arrays.copyOf(data, data.length / 2);
+        assertThrows(IOException.class, () -> UserDirectorySnapshot.decode(ByteBuffer.wrap(truncated), false));
+    }
+
+    private static void assertDirectory(List<User> users, UserDirectory directory) {
+        assertEquals(users.size(), directory.size());
+        for (int ordinal = 0; ordinal < users.size(); ordinal++) {
+            User user = users.get(ordinal);
+            UserInformation information = directory.toUserInformation(ordinal);
+            assertEquals(user.getUserId(), information.getUserId());
+            assertEquals(user.getUserName(), information.getUserName());
+            assertEquals(user.getUserDescription(), information.getUserDescription());
+            assertEquals(user.getImageUrl(), information.getImageUrl());
+            assertEquals(user.getTags(), information.getTags());
+            assertEquals(user.getCreateTime(), information.getCreateTime());
+            assertEquals(ordinal, directory.ordinalOf(user.getUserId()));
+        }
+    }
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUserId("u" + i);
+            user.setUserName("用户" + i);
+            user.setUserDescription("简介 " + i);
+            user.setImageUrl("http://img/" + i + ".png");
+            user.setTags(TAGS.get(i % TAGS.size()));
+            user.setCreateTime(String.format("2025-03-%02d 10:00:00", 1 + i % 28));
+            user.setUpdateTime("2025-03-28 11:00:00");
+            users.add(user);
+        }
+        return users;
+    }
+}
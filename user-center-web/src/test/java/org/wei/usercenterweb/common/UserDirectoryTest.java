@@ -0,0 +1,106 @@
+package org.wei.usercenterweb.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.wei.usercenterweb.domain.User;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 用户目录增量更新：追加到共用缓冲区尾部与压缩
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/30
+ */
+class UserDirectoryTest {
+
+    @Test
+    void changesAreAppendedToSharedOffHeapBuffer() {
+        UserDirectory.Builder builder = UserDirectory.builder(3, true);
+        for (int i = 0; i < 3; i++) {
+            builder.add(user("u" + i, "用户" + i, "[\"java\"]"));
+        }
+        UserDirectory first = builder.build();
+
+        Map<Integer, User> replaced = new HashMap<>();
+        replaced.put(1, user("u1", "新名字", null));
+        BitSet removed = new BitSet();
+        removed.set(0);
+        UserDirectory second = first.withChanges(removed, replaced,
+                Collections.singletonList(user("u3", "用户3", "[\"go\"]")));
+
+        // 不分配新的堆外缓冲区
+        assertSame(strings(first), strings(second));
+        assertEquals(3, second.size());
+        assertEquals(-1, second.ordinalOf("u0"));
+        assertEquals("新名字", second.toUserInformation(second.ordinalOf("u1")).getUserName());
+        assertNull(second.toUserInformation(second.ordinalOf("u1")).getTags());
+        assertEquals("用户2", second.toUserInformation(second.ordinalOf("u2")).getUserName());
+        assertEquals("[\"go\"]", second.toUserInformation(second.ordinalOf("u3")).getTags());
+
+        // 旧目录不受影响
+        assertEquals(3, first.size());
+        assertEquals("用户1", first.toUserInformation(1).getUserName());
+        assertEquals("[\"java\"]", first.toUserInformation(1).getTags());
+    }
+
+    @Test
+    void compactsWhenTailIsFullOrFromStaleGeneration() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(user("u" + i, "用户" + i, "[\"java\"]"));
+        }
+        UserDirectory.Builder builder = UserDirectory.builder(users.size(), true);
+        users.forEach(builder::add);
+        UserDirectory current = builder.build();
+        UserDirectory first = current;
+
+        // 反复修改同一个用户，直到尾部空间用完后压缩到新的缓冲区
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            description.append("简介");
+        }
+        Object buffer = strings(current);
+        int rounds = 0;
+        while (strings(current) == buffer) {
+            User changed = user("u5", "改名" + rounds++, "[\"go\"]");
+            changed.setUserDescription(description.toString());
+            current = current.withChanges(new BitSet(), Collections.singletonMap(5, changed), Collections.emptyList());
+        }
+        assertEquals(100, current.size());
+        assertEquals("改名" + (rounds - 1), current.toUserInformation(5).getUserName());
+        assertEquals("用户99", current.toUserInformation(99).getUserName());
+        assertEquals(42, current.ordinalOf("u42"));
+
+        // 旧一代目录不能再向已被后代使用的缓冲区追加
+        UserDirectory fromStale = first.withChanges(new BitSet(),
+                Collections.singletonMap(7, user("u7", "另一个名字", null)), Collections.emptyList());
+        assertNotSame(strings(first), strings(fromStale));
+        assertEquals("另一个名字", fromStale.toUserInformation(7).getUserName());
+        assertEquals("用户5", fromStale.toUserInformation(5).getUserName());
+    }
+
+    private static Object strings(UserDirectory directory) {
+        return ReflectionTestUtils.getField(directory, "strings");
+    }
+
+    private static User user(String userId, String userName, String tags) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setUserName(userName);
+        user.setTags(tags);
+        user.setCreateTime("2025-03-01 10:00:00");
+        return user;
+    }
+}
@@ -0,0 +1,118 @@
+package org.wei.usercenterweb.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 标签倒排索引与位向量打分
+ *
+ * @author WeiWei
+ * @version V5.0.0
+ * @date 2025/3/27
+ */
+class UserTagIndexTest {
+
+    @Test
+    void ranksByJaccardSimilarity() {
+        UserTagIndex index = index(
+                "[\"java\",\"python\"]",
+                "[\"java\"]",
+                "[\"go\"]",
+                "[\"java\",\"python\",\"go\"]",
+                null);
+
+        // 0: 1/1，3: 2/3，1: 1/2，2 不相交，按序号补充
+        assertArrayEquals(new int[]{0, 3, 1, 2}, index.topK(Arrays.asList("java", "python"), -1, 10));
+        assertEquals(4, index.getTaggedUserCount());
+        assertFalse(index.isTagged(4));
+    }
+
+    @Test
+    void excludesCurrentUserFromScoredAndFilledResults() {
+        UserTagIndex index = index(
+                "[\"java\"]",
+                "[\"java\"]",
+                "[\"go\"]");
+
+        assertArrayEquals(new int[]{1, 2}, index.topK(Collections.singletonList("java"), 0, 10));
+        // 被排除的用户没有共同标签时也不会出现在补充结果中
+        assertArrayEquals(new int[]{0, 1}, index.topK(Collections.singletonList("java"), 2, 10));
+    }
+
+    @Test
+    void scoresTagsBeyondTheFirstWord() {
+        // 130 个不同标签，位向量需要 3 个 long
+        String[] tags = new String[130];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = "[\"t" + i + "\"]";
+        }
+        tags[129] = "[\"t129\",\"t70\"]";
+        UserTagIndex index = index(tags);
+
+        int[] ranked = index.topK(Arrays.asList("t70", "t129"), -1, 3);
+        // 129 完全相同，70 相似度 1/2，其余不相交按序号补充
+        assertArrayEquals(new int[]{129, 70, 0}, ranked);
+
+        UserTagIndex.Query query = index.query(Arrays.asList("t70", "t129"));
+        assertArrayEquals(new int[]{129, 70}, index.scoreRange(query, 64, 130, -1, 5).drainDescending());
+    }
+
+    @Test
+    void unknownQueryTagsCountTowardsUnion() {
+        UserTagIndex index = index("[\"java\"]", "[\"java\",\"go\"]");
+
+        // 0: 1/2，1: 1/3
+        assertArrayEquals(new int[]{0, 1}, index.topK(Arrays.asList("java", "rust"), -1, 2));
+        assertEquals(0, index.topK(Collections.singletonList("rust"), -1, 0).length);
+    }
+
+    @Test
+    void rangeScoringMatchesFullScan() {
+        List<String> skills = Arrays.asList("java", "python", "go", "rust", "c", "js", "sql");
+        String[] tags = IntStream.range(0, 500)
+                .mapToObj(i -> "[\"" + skills.get(i % 7) + "\",\"" + skills.get(i * 3 % 7) + "\"]")
+                .toArray(String[]::new);
+        UserTagIndex index = index(tags);
+        List<String> query = Arrays.asList("java", "go");
+
+        UserTagIndex.Query encoded = index.query(query);
+        TopKHeap merged = index.scoreRange(encoded, 0, 200, 3, 40);
+        merged.merge(index.scoreRange(encoded, 200, 500, 3, 40));
+
+        int[] expected = index.topK(query, 3, 40);
+        assertArrayEquals(expected, index.complete(merged, encoded, 3, 40));
+        assertFalse(Arrays.stream(expected).anyMatch(ordinal -> ordinal == 3));
+    }
+
+    @Test
+    void capacityIsClampedToIndexSize() {
+        UserTagIndex index = index("[\"java\"]", "[\"go\"]", null);
+
+        // k 远大于用户数量时按用户数量分配，结果只包含有标签的用户
+        assertArrayEquals(new int[]{0, 1}, index.topK(Collections.singletonList("java"), -1, Integer.MAX_VALUE));
+        UserTagIndex.Query query = index.query(Collections.singletonList("java"));
+        assertArrayEquals(new int[]{1}, index.complete(new TopKHeap(0), query, 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void parseTagsIgnoresMalformedJson() {
+        assertEquals(Arrays.asList("java", "go"),
+                UserTagIndex.parseTags("[\"java\",\"go\",\"java\"]").stream().collect(Collectors.toList()));
+        assertTrue(UserTagIndex.parseTags("java,go").isEmpty());
+        assertTrue(UserTagIndex.parseTags(null).isEmpty());
+    }
+
+    private static UserTagIndex index(String... tags) {
+        return UserTagIndex.build(tags.length, ordinal -> tags[ordinal]);
+    }
+}